@@ -0,0 +1,104 @@
+package com.pavansingerreddy.note.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.converter.RsaKeyConverters;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.pavansingerreddy.note.entity.Note;
+import com.pavansingerreddy.note.entity.Users;
+import com.pavansingerreddy.note.model.UserPrincipal;
+import com.pavansingerreddy.note.utils.JWTUtil;
+import com.pavansingerreddy.note.utils.JwtVerificationCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// This class creates the objects used by the benchmarks the same way as spring
+// creates them in the application but without starting the application context
+// (which needs a database), so the benchmarks only measure the code under test
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    // This method creates a JWTUtil with the keys from the application's
+    // resources. If verificationCacheSize is 0 then no verified jwt is cached so
+    // every validation verifies the RSA signature
+    static JWTUtil jwtUtil(int verificationCacheSize) {
+        RSAPublicKey publicKey = RsaKeyConverters.x509().convert(resource("publicKey.pem"));
+        RSAPrivateKey privateKey = RsaKeyConverters.pkcs8().convert(resource("privateKey.pem"));
+        RSAKey jwk = new RSAKey.Builder(publicKey).privateKey(privateKey).build();
+
+        JwtVerificationCache jwtVerificationCache = new JwtVerificationCache(new SimpleMeterRegistry(),
+                verificationCacheSize);
+
+        JWTUtil jwtUtil = new JWTUtil();
+        ReflectionTestUtils.setField(jwtUtil, "jwtEncoder", new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(jwk))));
+        ReflectionTestUtils.setField(jwtUtil, "jwtDecoder", NimbusJwtDecoder.withPublicKey(publicKey).build());
+        ReflectionTestUtils.setField(jwtUtil, "jwtVerificationCache", jwtVerificationCache);
+        ReflectionTestUtils.setField(jwtUtil, "expireTimeInSeconds", 60000L);
+        return jwtUtil;
+    }
+
+    // This method returns the authentication of a logged in user like the one
+    // created by the JwtAuthenticationProvider
+    static Authentication authentication() {
+        return new UsernamePasswordAuthenticationToken(new UserPrincipal(42L, "benchmark.user@example.com"), null,
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+    }
+
+    // This method creates a note of the given user whose title and content have the
+    // given lengths
+    static Note note(Users user, int titleLength, int contentLength) {
+        Note note = new Note();
+        note.setNoteId(1234L);
+        note.setTitle(text(titleLength));
+        note.setContent(text(contentLength));
+        note.setCreatedAt(new Date());
+        note.setUpdatedAt(new Date());
+        note.setUser(user);
+        return note;
+    }
+
+    // This method creates a user with only the id set which is what a note
+    // references when its user is not loaded
+    static Users user() {
+        Users user = new Users();
+        user.setUserId(42L);
+        return user;
+    }
+
+    // This method returns a text of the given length made of words
+    static String text(int length) {
+        String words = "lorem ipsum dolor sit amet consectetur adipiscing elit sed do eiusmod tempor ";
+        StringBuilder text = new StringBuilder(length);
+        while (text.length() < length) {
+            text.append(words, 0, Math.min(words.length(), length - text.length()));
+        }
+        return text.toString();
+    }
+
+    private static InputStream resource(String name) {
+        try {
+            return new ClassPathResource(name).getInputStream();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
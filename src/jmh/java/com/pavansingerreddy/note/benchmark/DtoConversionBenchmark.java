@@ -0,0 +1,53 @@
+package com.pavansingerreddy.note.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pavansingerreddy.note.dto.NoteDto;
+import com.pavansingerreddy.note.dto.PagableNoteDto;
+import com.pavansingerreddy.note.entity.Note;
+import com.pavansingerreddy.note.utils.DTOConversionUtil;
+
+// Benchmarks of the conversion of a note entity to the dto's which are returned
+// by the notes api's. contentLength covers a short note, a typical note and a
+// long note
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DtoConversionBenchmark {
+
+    @Param({ "200", "4000", "64000" })
+    public int contentLength;
+
+    private Note note;
+
+    @Setup
+    public void setup() {
+        note = BenchmarkFixtures.note(BenchmarkFixtures.user(), 60, contentLength);
+    }
+
+    @Benchmark
+    public NoteDto noteToNoteDTO() {
+        return DTOConversionUtil.noteToNoteDTO(note);
+    }
+
+    @Benchmark
+    public PagableNoteDto noteToPagableNoteDto() {
+        return DTOConversionUtil.noteToPagableNoteDto(note, 25);
+    }
+
+}
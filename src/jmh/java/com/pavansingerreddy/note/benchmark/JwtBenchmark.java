@@ -0,0 +1,68 @@
+package com.pavansingerreddy.note.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import com.pavansingerreddy.note.utils.JWTUtil;
+
+// Benchmarks of the JWTUtil methods which are used on login (generateJwt) and on
+// every authenticated request (validateJwt, getUsername, getRoles). With
+// verificationCache "off" every call verifies the RSA signature and with "on"
+// the repeated calls for the same token are answered from the verification cache
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    @Param({ "on", "off" })
+    public String verificationCache;
+
+    private JWTUtil jwtUtil;
+    private Authentication authentication;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtUtil = BenchmarkFixtures.jwtUtil("on".equals(verificationCache) ? 10000 : 0);
+        authentication = BenchmarkFixtures.authentication();
+        token = jwtUtil.generateJwt(authentication);
+    }
+
+    @Benchmark
+    public String generateJwt() {
+        return jwtUtil.generateJwt(authentication);
+    }
+
+    @Benchmark
+    public boolean validateJwt() {
+        return jwtUtil.validateJwt(token);
+    }
+
+    @Benchmark
+    public String getUsername() {
+        return jwtUtil.getUsername(token);
+    }
+
+    @Benchmark
+    public List<SimpleGrantedAuthority> getRoles() {
+        return jwtUtil.getRoles(token);
+    }
+
+}
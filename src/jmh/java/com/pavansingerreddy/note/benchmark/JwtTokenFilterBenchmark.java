@@ -0,0 +1,77 @@
+package com.pavansingerreddy.note.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.pavansingerreddy.note.authentication_filter.JWTTokenFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+
+// Benchmark of the JWTTokenFilter which runs on every request. The request
+// carries the jwt cookie of a logged in user (or no cookie for the anonymous
+// case) and the filter chain does nothing so only the cost of the filter is
+// measured
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenFilterBenchmark {
+
+    @Param({ "on", "off" })
+    public String verificationCache;
+
+    private JWTTokenFilter jwtTokenFilter;
+    private MockHttpServletRequest authenticatedRequest;
+    private MockHttpServletRequest anonymousRequest;
+    private MockHttpServletResponse response;
+    private final FilterChain filterChain = (request, response) -> {
+    };
+
+    @Setup
+    public void setup() {
+        var jwtUtil = BenchmarkFixtures.jwtUtil("on".equals(verificationCache) ? 10000 : 0);
+        jwtTokenFilter = new JWTTokenFilter();
+        ReflectionTestUtils.setField(jwtTokenFilter, "jwtUtil", jwtUtil);
+
+        authenticatedRequest = new MockHttpServletRequest("GET", "/api/notes/get");
+        authenticatedRequest.setCookies(new Cookie("XSRF-TOKEN", "csrf"),
+                new Cookie("JWT", jwtUtil.generateJwt(BenchmarkFixtures.authentication())));
+        anonymousRequest = new MockHttpServletRequest("GET", "/api/user/csrf-token");
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public void authenticatedRequest() throws ServletException, IOException {
+        jwtTokenFilter.doFilter(authenticatedRequest, response, filterChain);
+        // the filter stores the authentication in the thread's security context, it is
+        // cleared so that every invocation starts like a new request
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public void anonymousRequest() throws ServletException, IOException {
+        jwtTokenFilter.doFilter(anonymousRequest, response, filterChain);
+        SecurityContextHolder.clearContext();
+    }
+
+}
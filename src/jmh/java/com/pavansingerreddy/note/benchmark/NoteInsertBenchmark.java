@@ -0,0 +1,145 @@
+package com.pavansingerreddy.note.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pavansingerreddy.note.entity.Note;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+
+// Benchmark of inserting many notes in one transaction, like POST
+// /api/notes/batch does, with the ids generated by an identity column (how the
+// notes were inserted before) and by a pooled-lo sequence (how they are inserted
+// now). The result is the number of notes inserted per second. Both use the JDBC
+// batching settings of the application.yml. The database is an in memory H2 by
+// default; set BENCHMARK_JDBC_URL, BENCHMARK_JDBC_USERNAME and
+// BENCHMARK_JDBC_PASSWORD to run it against MySQL or PostgreSQL, where every
+// statement is a round trip over the network
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NoteInsertBenchmark {
+
+    // the number of notes inserted in each transaction
+    private static final int NOTES_PER_TRANSACTION = 500;
+
+    @Param({ "identity", "pooled-lo" })
+    public String idGeneration;
+
+    private SessionFactory sessionFactory;
+    private String title;
+    private String content;
+
+    @Setup
+    public void setup() {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("hibernate.connection.url",
+                System.getenv().getOrDefault("BENCHMARK_JDBC_URL", "jdbc:h2:mem:notes;DB_CLOSE_DELAY=-1"));
+        settings.put("hibernate.connection.username", System.getenv().getOrDefault("BENCHMARK_JDBC_USERNAME", "sa"));
+        settings.put("hibernate.connection.password", System.getenv().getOrDefault("BENCHMARK_JDBC_PASSWORD", ""));
+        settings.put("hibernate.hbm2ddl.auto", "create-drop");
+        settings.put("hibernate.jdbc.batch_size", "50");
+        settings.put("hibernate.order_inserts", "true");
+        settings.put("hibernate.id.optimizer.pooled.preferred", "pooled-lo");
+        sessionFactory = new MetadataSources(new StandardServiceRegistryBuilder().applySettings(settings).build())
+                .addAnnotatedClass(IdentityNote.class)
+                .addAnnotatedClass(SequenceNote.class)
+                .buildMetadata()
+                .buildSessionFactory();
+        title = BenchmarkFixtures.text(60);
+        content = BenchmarkFixtures.text(4000);
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NOTES_PER_TRANSACTION)
+    public void insertNotes() {
+        boolean identity = "identity".equals(idGeneration);
+        sessionFactory.inTransaction(session -> {
+            for (int i = 0; i < NOTES_PER_TRANSACTION; i++) {
+                session.persist(identity ? new IdentityNote(title, content) : new SequenceNote(title, content));
+            }
+        });
+    }
+
+    // a note whose id is generated by an identity column, so Hibernate runs each
+    // INSERT as soon as the note is persisted to read the id
+    @Entity
+    @Table(name = "benchmark_identity_note")
+    static class IdentityNote {
+
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Long noteId;
+        @Column(columnDefinition = "TEXT")
+        private String title;
+        @Column(columnDefinition = "TEXT")
+        private String content;
+
+        IdentityNote() {
+        }
+
+        IdentityNote(String title, String content) {
+            this.title = title;
+            this.content = content;
+        }
+
+    }
+
+    // a note whose id comes from a sequence in blocks of Note.ID_ALLOCATION_SIZE
+    // like the Note entity, so the INSERTs are sent in JDBC batches at the flush
+    @Entity
+    @Table(name = "benchmark_sequence_note")
+    static class SequenceNote {
+
+        @Id
+        @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "benchmark_note_id_seq")
+        @SequenceGenerator(name = "benchmark_note_id_seq", sequenceName = "benchmark_note_id_seq", allocationSize = Note.ID_ALLOCATION_SIZE)
+        private Long noteId;
+        @Column(columnDefinition = "TEXT")
+        private String title;
+        @Column(columnDefinition = "TEXT")
+        private String content;
+
+        SequenceNote() {
+        }
+
+        SequenceNote(String title, String content) {
+            this.title = title;
+            this.content = content;
+        }
+
+    }
+
+}
@@ -3,6 +3,7 @@ package com.pavansingerreddy.note.advice;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.AccessDeniedException;
@@ -171,6 +172,21 @@ public class GlobalRESTExceptionHandler {
         return errorMap;
     }
 
+    // sending 503 as http response if we got TaskRejectedException
+    @ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE)
+    // The TaskRejectedException is thrown by an executor whose queue is full. It
+    // means that the server has more background work than it can handle right now
+    // so the client should try again later instead of us queueing more work
+    @ExceptionHandler(TaskRejectedException.class)
+    // function which handles the TaskRejectedException
+    public Map<String, String> handleTaskRejectedException(TaskRejectedException exception) {
+        Map<String, String> errorMap = new HashMap<>();
+
+        errorMap.put("errorMessage", "The server is busy right now please try again after some time");
+
+        return errorMap;
+    }
+
     // sending 400 as http response if we got any other Exception
     @ResponseStatus(value = HttpStatus.BAD_REQUEST)
     // Exception is the super class of all exceptions so if any other exceptions
@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import com.pavansingerreddy.note.controller.NotesController;
+import com.pavansingerreddy.note.exception.InvalidCursorException;
 import com.pavansingerreddy.note.exception.NoteDoesNotExistsException;
 
 
@@ -27,4 +28,16 @@ public class NotesRESTExceptionHandler {
         return errorMap;
     }
 
+    // sending 400 as http response if we got InvalidCursorException
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST)
+    // custom exception which get's thrown if the cursor sent by the client is not
+    // valid
+    @ExceptionHandler(InvalidCursorException.class)
+    // function which handles the InvalidCursorException
+    public Map<String, String> handleInvalidCursorException(InvalidCursorException exception) {
+        Map<String, String> errorMap = new HashMap<>();
+        errorMap.put("errorMessage", exception.getMessage());
+        return errorMap;
+    }
+
 }
@@ -6,7 +6,9 @@ import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.pavansingerreddy.note.model.UserPrincipal;
 import com.pavansingerreddy.note.utils.JWTUtil;
+import com.pavansingerreddy.note.utils.VerifiedJwt;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -50,29 +52,34 @@ public class JWTTokenFilter extends OncePerRequestFilter {
             }
         }
 
+        // verifying the jwt token only once. The verified jwt contains the username
+        // and the roles so we don't have to decode the token again to get them
+        VerifiedJwt verifiedJwt = token == null ? null : jwtUtil.verifyJwt(token);
+
         // if the jwt token is null or jwt token is not valid then we are moving on to
         // the next filter.As we are not authenticating the user in this filter in the
         // subsequent filters also user will not be authenticated as we did not added
         // any custom authentication filter in the next filters
-        if (token == null || !jwtUtil.validateJwt(token)) {
+        if (verifiedJwt == null) {
             filterChain.doFilter(request, response);
             return;
         }
 
         // extracting the username or email from the jwt token of the user's request
         // which contains the jwt cookie
-        String username = jwtUtil.getUsername(token);
+        String username = verifiedJwt.getSubject();
 
-        // the getRoles method from the jwtUtil class takes the jwt token and gives the
-        // List of SimpleGrantedAuthority object which contains the roles associated
-        // with that jwt token
-        List<SimpleGrantedAuthority> roles = jwtUtil.getRoles(token);
+        // the roles of the verified jwt is the List of SimpleGrantedAuthority object
+        // which contains the roles associated with that jwt token
+        List<SimpleGrantedAuthority> roles = verifiedJwt.getRoles();
 
         // here we are creating the instance of UsernamePasswordAuthenticationToken and
         // we are calling the UsernamePasswordAuthenticationToken constructor with three
-        // parameters which authenticates the user's current request
+        // parameters which authenticates the user's current request. The principal is
+        // a UserPrincipal which contains the user's id from the jwt so that the notes
+        // api's can use it without looking up the user by the email
         UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = new UsernamePasswordAuthenticationToken(
-                username, null, roles);
+                new UserPrincipal(verifiedJwt.getUserId(), username), null, roles);
 
         // the setDetails is used to store additional details about the authenticating request These details can be accessed by our application for various purposes.The buildDetails(HttpServletRequest) method creates an instance of WebAuthenticationDetails containing details of the web-based authentication request, such as the IP address.
         usernamePasswordAuthenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -14,6 +14,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
 import com.pavansingerreddy.note.entity.Users;
+import com.pavansingerreddy.note.model.UserPrincipal;
 
 // declaring it as a component so spring can create beans of this custom filter
 @Component
@@ -73,9 +74,11 @@ public class JwtAuthenticationProvider implements AuthenticationProvider {
                 // UsernamePasswordAuthenticationToken(username,password,userDetails.getAuthorities());
                 // because we are using email as an identifier for the user this emailid
                 // reflects in the "sub" claim of the jwt which we are going to use to
-                // authenticate the user
+                // authenticate the user. The principal is a UserPrincipal which also contains
+                // the user's id so that it can be added to the jwt
                 UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = new UsernamePasswordAuthenticationToken(
-                        user.getEmail(), userDetails.getPassword(), userDetails.getAuthorities());
+                        new UserPrincipal(user.getUserId(), user.getEmail()), userDetails.getPassword(),
+                        userDetails.getAuthorities());
                 return usernamePasswordAuthenticationToken;
             }
         }
@@ -1,7 +1,19 @@
 package com.pavansingerreddy.note.config;
 
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 // we are defining a configuration annotation which indicates that we are configuring something and This annotation indicates that the class can be used by the Spring IoC container as a source of bean definitions.
 @Configuration
@@ -9,8 +21,190 @@ import org.springframework.scheduling.annotation.EnableAsync;
 // capability.We are enabling asynchronous execution of spring because it can be
 // used in event listeners
 @EnableAsync
-// This is the declaration of the configuration class. You can add more
-// configuration details inside this class if needed.
+// This annotation is used to enable Spring's scheduled tasks so that the
+// EmailOutboxDispatcher can send the pending emails of the outbox periodically
+@EnableScheduling
+// This is the declaration of the configuration class. Every executor of the
+// application has a bounded queue so that a spike of work cannot fill the
+// memory, waits for its tasks when the application stops and publishes its
+// active threads, queue depth and task latency to the /actuator/metrics endpoint
 public class AsyncConfig {
 
+    // if the opt-in virtual thread mode of Spring Boot is enabled (it needs a Java
+    // 21 runtime) the maintenance tasks also run on virtual threads
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    // number of threads which send the emails of the outbox in parallel
+    @Value("${mail.outbox.concurrency:2}")
+    private int emailOutboxConcurrency;
+
+    // number of threads which run the maintenance tasks
+    @Value("${executors.maintenance.pool-size:1}")
+    private int maintenancePoolSize;
+
+    // maximum number of maintenance tasks which wait for a thread
+    @Value("${executors.maintenance.queue-capacity:100}")
+    private int maintenanceQueueCapacity;
+
+    // number of threads which write the note change events to the connected
+    // devices
+    @Value("${executors.note-events.pool-size:4}")
+    private int noteEventsPoolSize;
+
+    // maximum number of connections which wait for a thread to write their events
+    @Value("${executors.note-events.queue-capacity:10000}")
+    private int noteEventsQueueCapacity;
+
+    // number of threads which write the streamed responses of spring mvc like the
+    // notes of /api/notes/get
+    @Value("${executors.mvc.pool-size:16}")
+    private int mvcPoolSize;
+
+    // maximum number of streamed responses which wait for a thread
+    @Value("${executors.mvc.queue-capacity:100}")
+    private int mvcQueueCapacity;
+
+    // time for which the application waits for the running tasks of an executor
+    // when it stops
+    @Value("${executors.await-termination-seconds:30}")
+    private int awaitTerminationSeconds;
+
+    // Bean annotation tells Spring that this method will return a bean that should
+    // be managed by the Spring container.
+    @Bean
+    // This method creates the executor on which the EmailOutboxDispatcher sends the
+    // emails. Each thread claims its own batch of emails so the number of emails
+    // which are sent per second grows with the number of threads. The dispatcher
+    // submits one task per thread so the queue only has room for that many tasks,
+    // and if it is full the dispatcher's own thread sends the batch which slows
+    // the dispatcher down instead of queueing more work
+    // The threads stay platform threads even in the virtual thread mode because
+    // Jakarta Mail sends a message inside a synchronized method of SMTPTransport,
+    // which would pin the carrier thread of a virtual thread for the whole SMTP
+    // exchange and take it away from the requests
+    ThreadPoolTaskExecutor emailOutboxExecutor(MeterRegistry meterRegistry) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(emailOutboxConcurrency);
+        executor.setMaxPoolSize(emailOutboxConcurrency);
+        executor.setQueueCapacity(emailOutboxConcurrency);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("email-outbox-");
+        instrument(executor, "email-outbox", meterRegistry);
+        return executor;
+    }
+
+    // Bean annotation tells Spring that this method will return a bean that should
+    // be managed by the Spring container. The bean is also named "taskExecutor" so
+    // that the @Async methods without an executor name run on it. Without it
+    // Spring Boot does not create its own executor (because we define executors
+    // here) and the @Async methods would get a new thread for every call
+    @Bean(name = { "maintenanceExecutor", "taskExecutor" })
+    // This method creates the executor for the background maintenance tasks like
+    // deleting the old emails of the outbox. When its queue is full the task is
+    // rejected with a TaskRejectedException, which is answered with 503 if it
+    // happens during a request, instead of queueing work without a limit
+    ThreadPoolTaskExecutor maintenanceExecutor(MeterRegistry meterRegistry) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maintenancePoolSize);
+        executor.setMaxPoolSize(maintenancePoolSize);
+        executor.setQueueCapacity(maintenanceQueueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setThreadNamePrefix("maintenance-");
+        // in the virtual thread mode the pool still limits how many tasks run at once
+        // but each task runs on a new virtual thread instead of a platform thread
+        if (virtualThreadsEnabled) {
+            executor.setThreadFactory(new VirtualThreadTaskExecutor("maintenance-").getVirtualThreadFactory());
+        }
+        instrument(executor, "maintenance", meterRegistry);
+        return executor;
+    }
+
+    // Bean annotation tells Spring that this method will return a bean that should
+    // be managed by the Spring container. The bean is named "applicationTaskExecutor"
+    // because Spring Boot gives the bean with this name to spring mvc for its async
+    // requests. Spring Boot only creates its own applicationTaskExecutor if there is
+    // no other executor, so without this bean the StreamingResponseBody of
+    // /api/notes/get would get a new thread for every request without any limit
+    @Bean(name = "applicationTaskExecutor")
+    // This method creates the executor on which spring mvc writes the streamed
+    // responses. When its queue is full the request is answered with 503 by our
+    // handler of the TaskRejectedException instead of queueing it without a limit
+    ThreadPoolTaskExecutor applicationTaskExecutor(MeterRegistry meterRegistry) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(mvcPoolSize);
+        executor.setMaxPoolSize(mvcPoolSize);
+        executor.setQueueCapacity(mvcQueueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setThreadNamePrefix("mvc-async-");
+        // in the virtual thread mode a response which waits for a slow client does not
+        // hold a platform thread
+        if (virtualThreadsEnabled) {
+            executor.setThreadFactory(new VirtualThreadTaskExecutor("mvc-async-").getVirtualThreadFactory());
+        }
+        instrument(executor, "mvc", meterRegistry);
+        return executor;
+    }
+
+    // Bean annotation tells Spring that this method will return a bean that should
+    // be managed by the Spring container.
+    @Bean
+    // This method creates the executor on which the NoteChangeBroadcaster writes the
+    // buffered events of each connected device. A connection has at most one task
+    // in the executor at a time, so a slow device only holds one thread while the
+    // events of the other devices are written by the other threads. When the queue
+    // is full the task is rejected and the events stay in the buffer of the
+    // connection until the next event or heartbeat schedules it again
+    ThreadPoolTaskExecutor noteEventsExecutor(MeterRegistry meterRegistry) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(noteEventsPoolSize);
+        executor.setMaxPoolSize(noteEventsPoolSize);
+        executor.setQueueCapacity(noteEventsQueueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setThreadNamePrefix("note-events-");
+        // in the virtual thread mode a write which waits for a slow device does not
+        // hold a platform thread
+        if (virtualThreadsEnabled) {
+            executor.setThreadFactory(new VirtualThreadTaskExecutor("note-events-").getVirtualThreadFactory());
+        }
+        instrument(executor, "note-events", meterRegistry);
+        return executor;
+    }
+
+    // This method makes the executor wait for its running and queued tasks when the
+    // application stops, and registers its metrics. The active threads and the
+    // queued tasks are gauges and every task is timed from the moment it is
+    // submitted until it completes, so the time spent in the queue is included
+    private void instrument(ThreadPoolTaskExecutor executor, String name, MeterRegistry meterRegistry) {
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(awaitTerminationSeconds);
+
+        Gauge.builder("executor.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .tag("name", name)
+                .description("Number of threads which are running a task")
+                .register(meterRegistry);
+        Gauge.builder("executor.queued", executor, ThreadPoolTaskExecutor::getQueueSize)
+                .tag("name", name)
+                .description("Number of tasks which wait for a thread")
+                .register(meterRegistry);
+        Gauge.builder("executor.pool.size", executor, ThreadPoolTaskExecutor::getPoolSize)
+                .tag("name", name)
+                .description("Number of threads of the executor")
+                .register(meterRegistry);
+        Timer latency = Timer.builder("executor.task.latency")
+                .tag("name", name)
+                .description("Time from submitting a task until it completes")
+                .register(meterRegistry);
+        executor.setTaskDecorator(task -> {
+            long submittedAt = System.nanoTime();
+            return () -> {
+                try {
+                    task.run();
+                } finally {
+                    latency.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                }
+            };
+        });
+    }
+
 }
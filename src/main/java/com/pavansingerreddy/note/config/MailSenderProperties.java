@@ -0,0 +1,85 @@
+package com.pavansingerreddy.note.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+// ConfigurationProperties annotation binds the properties which start with
+// "mail" in the application.yml to the fields of this class
+@ConfigurationProperties(prefix = "mail")
+// @Data is a Lombok annotation to create the getters, setters, equals, hash, and
+// toString methods
+@Data
+// MailSenderProperties contains the list of SMTP senders which are used for
+// sending the emails. A new sender is added by adding another entry to the
+// "mail.senders" list in the application.yml without changing any code
+public class MailSenderProperties {
+
+    // the SMTP senders. The first sender of the list has the mail number 1, the
+    // second one has the mail number 2 and so on
+    private List<Sender> senders = new ArrayList<>();
+
+    // @Data is a Lombok annotation to create the getters, setters, equals, hash,
+    // and toString methods
+    @Data
+    // Sender contains the connection details and the rate limit of a single SMTP
+    // sender
+    public static class Sender {
+
+        // smtp server like smtp-mail.outlook.com for outlook or smtp.gmail.com for gmail
+        private String host;
+        // port of the smtp server
+        private int port = 587;
+        // email id of the email account which is associated with the above smtp server.
+        // It is also used as the from address of the emails
+        private String username;
+        // app password of the email account
+        private String password;
+        // additional JavaMail properties like "mail.smtp.timeout" which are added to
+        // the default smtp, auth and starttls properties
+        private Map<String, String> properties = new LinkedHashMap<>();
+        // the rate limit of the sender
+        private RateLimit rateLimit = new RateLimit();
+        // the pool of open SMTP connections of the sender
+        private ConnectionPool connectionPool = new ConnectionPool();
+
+    }
+
+    // @Data is a Lombok annotation to create the getters, setters, equals, hash,
+    // and toString methods
+    @Data
+    // RateLimit is the token bucket of a sender. The sender can send up to capacity
+    // emails at once and after that one email every refillPeriod so that we don't
+    // get blocked by our email provider for spam
+    public static class RateLimit {
+
+        // maximum number of emails which can be sent at once
+        private int capacity = 5;
+        // time after which the sender can send one more email
+        private Duration refillPeriod = Duration.ofMinutes(3);
+
+    }
+
+    // @Data is a Lombok annotation to create the getters, setters, equals, hash,
+    // and toString methods
+    @Data
+    // ConnectionPool contains the settings of the open SMTP connections which are
+    // reused for sending the emails of a sender
+    public static class ConnectionPool {
+
+        // maximum number of open connections which are kept for the sender. It should
+        // be at least the number of threads which send the emails
+        private int maxIdle = 2;
+        // time after which a connection which was not used is closed. It should be
+        // shorter than the time after which the SMTP server closes idle connections
+        private Duration idleTimeout = Duration.ofSeconds(30);
+
+    }
+
+}
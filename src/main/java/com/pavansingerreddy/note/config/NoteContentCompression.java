@@ -0,0 +1,106 @@
+package com.pavansingerreddy.note.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+// Component annotation tells Spring that this class is a component so that spring
+// creates a single bean of it when the application starts
+@Component
+// DependsOn annotation creates this bean after the NoteContentMigration so that
+// the contents of the existing notes are already in the note_content table when
+// it is compressed
+@DependsOn("noteContentMigration")
+// NoteContentCompression makes the database store the note_content table
+// compressed. The compression is done by the storage engine and not by the
+// application because the full text search of MySQL and PostgreSQL reads the
+// content column, and it could not search a content which the application had
+// compressed. The application reads and writes the content as plain text, and
+// the rows which were stored before the compression was turned on stay readable:
+//
+// - MySQL stores the table with ROW_FORMAT=COMPRESSED, which compresses the
+// pages of the table (including the long contents which are stored outside the
+// row) with zlib on disk and in the buffer pool. Changing the row format
+// rebuilds the table once, which also compresses the existing rows
+// - PostgreSQL already compresses every content above about 2 KB when it moves it
+// to the TOAST table. The column is switched from the default pglz to lz4 which
+// compresses and decompresses several times faster. The existing rows keep
+// pglz until they are written again
+public class NoteContentCompression {
+
+    // the logger which writes a warning if the database does not allow the
+    // compression
+    private static final Logger log = LoggerFactory.getLogger(NoteContentCompression.class);
+
+    // the JdbcTemplate runs the statements which change the storage of the table
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // the compression can be turned off for example on a MySQL server which does
+    // not allow compressed tables
+    @Value("${notes.content.compression.enabled:true}")
+    private boolean enabled;
+
+    // the size in KB of the compressed pages of MySQL. 8 halves the 16 KB pages
+    // which is a good fit for text, smaller sizes compress more but split more
+    // pages
+    @Value("${notes.content.compression.key-block-size:8}")
+    private int keyBlockSize;
+
+    // PostConstruct annotation runs this method once after the bean is created. It
+    // changes the storage of the note_content table if the database supports it and
+    // the table is not stored compressed yet. If the database refuses the change
+    // (for example a MySQL server with innodb_file_per_table turned off or a
+    // PostgreSQL server without lz4) a warning is logged and the application starts
+    // with the table stored as it was, as the compression only saves space
+    @PostConstruct
+    void compress() {
+        if (!enabled) {
+            return;
+        }
+        String databaseProductName = jdbcTemplate
+                .execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        try {
+            if ("MySQL".equals(databaseProductName)) {
+                compressMySql();
+            } else if ("PostgreSQL".equals(databaseProductName)) {
+                compressPostgreSql();
+            }
+        } catch (DataAccessException e) {
+            log.warn("The note_content table is not stored compressed because {} refused the change: {}",
+                    databaseProductName, e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    // This method changes the row format of the note_content table to COMPRESSED
+    private void compressMySql() {
+        String rowFormat = jdbcTemplate.queryForObject(
+                "SELECT row_format FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = 'note_content'",
+                String.class);
+        if (!"Compressed".equalsIgnoreCase(rowFormat)) {
+            jdbcTemplate.execute("ALTER TABLE note_content ROW_FORMAT=COMPRESSED KEY_BLOCK_SIZE=" + keyBlockSize);
+        }
+    }
+
+    // This method changes the compression of the content column to lz4. The
+    // compression method of a column exists since PostgreSQL 14 and lz4 is only
+    // available if the server was built with it, otherwise the content stays
+    // compressed with pglz
+    private void compressPostgreSql() {
+        String compression = jdbcTemplate.queryForObject(
+                "SELECT attcompression FROM pg_attribute WHERE attrelid = 'note_content'::regclass AND attname = 'content'",
+                String.class);
+        if (!"l".equals(compression)) {
+            jdbcTemplate.execute("ALTER TABLE note_content ALTER COLUMN content SET COMPRESSION lz4");
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.pavansingerreddy.note.config;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.pavansingerreddy.note.entity.Note;
+
+import jakarta.annotation.PostConstruct;
+
+// Component annotation tells Spring that this class is a component so that spring
+// creates a single bean of it when the application starts
+@Component
+// DependsOn annotation creates this bean after the entity manager factory so
+// that Hibernate has already created the note_content table and the new columns
+// of the note table
+@DependsOn("entityManagerFactory")
+// NoteContentMigration moves the content of the existing notes from the content
+// column of the note table to the note_content table. Hibernate's ddl-auto adds
+// the new table and columns but it never copies data or drops a column, so this
+// is done once when the application starts with a database which still has the
+// content column. Every step can run again, so if the application stops in the
+// middle the migration continues on the next start
+public class NoteContentMigration {
+
+    // the JdbcTemplate runs the statements of the migration
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // PostConstruct annotation runs this method once after the bean is created. It
+    // does nothing if the note table has no content column any more
+    @PostConstruct
+    void migrate() {
+        // the callback returns null if there is nothing to migrate, else if the
+        // database is PostgreSQL
+        Boolean postgreSql = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> hasColumn(connection,
+                "note", "content") ? "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()) : null);
+        if (postgreSql == null) {
+            return;
+        }
+        // copying the content of the notes which don't have a row in the note_content
+        // table yet
+        jdbcTemplate.update("""
+                INSERT INTO note_content (note_id, content) SELECT n.note_id, n.content FROM note n \
+                WHERE NOT EXISTS (SELECT 1 FROM note_content c WHERE c.note_id = n.note_id)\
+                """);
+        // filling the preview and the length of the content which are kept in the
+        // note table
+        jdbcTemplate.update("UPDATE note SET preview = SUBSTRING(content FROM 1 FOR " + Note.PREVIEW_LENGTH
+                + "), content_length = CHAR_LENGTH(content) WHERE content IS NOT NULL");
+        // dropping the content column. On PostgreSQL the search column which was
+        // generated from the content is dropped with it, MySQL removes the column from
+        // the full text index itself
+        jdbcTemplate.execute("ALTER TABLE note DROP COLUMN content" + (postgreSql ? " CASCADE" : ""));
+    }
+
+    // This method checks if the table of the current schema has the given column.
+    // The names are also looked up in upper case for the databases which store
+    // them in upper case
+    private static boolean hasColumn(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        for (String[] names : new String[][] { { table, column }, { table.toUpperCase(), column.toUpperCase() } }) {
+            try (ResultSet columns = metaData.getColumns(connection.getCatalog(), connection.getSchema(), names[0],
+                    names[1])) {
+                if (columns.next()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.pavansingerreddy.note.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.pavansingerreddy.note.entity.Note;
+
+import jakarta.annotation.PostConstruct;
+
+// Component annotation tells Spring that this class is a component so that spring
+// creates a single bean of it when the application starts
+@Component
+// DependsOn annotation creates this bean after the entity manager factory so
+// that Hibernate has already created the note_id_seq sequence (or table on MySQL)
+@DependsOn("entityManagerFactory")
+// NoteIdSequenceMigration moves the note_id_seq sequence past the ids of the
+// existing notes. The notes used to get their ids from the identity column of the
+// note table, and the sequence which Hibernate's ddl-auto creates starts at 1, so
+// without this the new notes would get the ids of notes which already exist. The
+// sequence is never moved backwards, so it does nothing once the sequence is
+// ahead of the notes
+public class NoteIdSequenceMigration {
+
+    // the JdbcTemplate runs the statements of the migration
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // PostConstruct annotation runs this method once after the bean is created
+    @PostConstruct
+    void migrate() {
+        String databaseProductName = jdbcTemplate
+                .execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        long maxNoteId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(note_id), 0) FROM note", Long.class);
+        if ("PostgreSQL".equals(databaseProductName)) {
+            // the next value of the sequence is last_value itself if nextval was never
+            // called, else last_value plus the increment of the sequence
+            long nextValue = jdbcTemplate.queryForObject("SELECT CASE WHEN is_called THEN last_value + "
+                    + Note.ID_ALLOCATION_SIZE + " ELSE last_value END FROM note_id_seq", Long.class);
+            if (nextValue <= maxNoteId) {
+                jdbcTemplate.queryForObject("SELECT setval('note_id_seq', ?, false)", Long.class, maxNoteId + 1);
+            }
+        } else if ("MySQL".equals(databaseProductName)) {
+            // Hibernate keeps the next value of the emulated sequence in the next_val
+            // column of the note_id_seq table
+            jdbcTemplate.update("UPDATE note_id_seq SET next_val = ? WHERE next_val <= ?", maxNoteId + 1, maxNoteId);
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.pavansingerreddy.note.config;
+
+import java.util.Map;
+import java.util.OptionalLong;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+// Configuration annotation indicates that the class can be used by the Spring IoC
+// container as a source of bean definitions.
+@Configuration
+// registering the SecondLevelCacheProperties so that the regions from the
+// application.yml are bound to it
+@EnableConfigurationProperties(SecondLevelCacheProperties.class)
+// SecondLevelCacheConfig creates the Caffeine caches which are used by
+// Hibernate as the regions of the second level cache and passes them to
+// Hibernate. The entities which are read again and again (users, roles and
+// notes) are then served from memory instead of the database as long as they
+// are not changed
+public class SecondLevelCacheConfig {
+
+    // Bean annotation tells Spring that this method will return a bean that should
+    // be managed by the Spring container. The cache manager is closed when the
+    // application stops
+    @Bean(destroyMethod = "close")
+    // This method creates the JCache CacheManager of Caffeine and creates a cache
+    // for every region configured in the application.yml with its maximum size and
+    // time to live
+    CacheManager secondLevelCacheManager(SecondLevelCacheProperties properties) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager();
+        for (Map.Entry<String, SecondLevelCacheProperties.Region> entry : properties.getRegions().entrySet()) {
+            SecondLevelCacheProperties.Region region = entry.getValue();
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(region.getMaximumSize()));
+            configuration.setExpireAfterWrite(OptionalLong.of(region.getExpireAfterWrite().toNanos()));
+            // the region may already exist if the application context is created again in
+            // the same JVM (for example in the tests)
+            if (cacheManager.getCache(entry.getKey()) == null) {
+                cacheManager.createCache(entry.getKey(), configuration);
+            }
+        }
+        return cacheManager;
+    }
+
+    // Bean annotation tells Spring that this method will return a bean that should
+    // be managed by the Spring container.
+    @Bean
+    // This method passes our cache manager to Hibernate so that the regions of the
+    // second level cache use the caches we have created above instead of caches
+    // with the default settings
+    HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return hibernateProperties -> hibernateProperties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+    }
+
+}
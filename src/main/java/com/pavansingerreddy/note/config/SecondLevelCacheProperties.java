@@ -0,0 +1,40 @@
+package com.pavansingerreddy.note.config;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+// ConfigurationProperties annotation binds the properties which start with
+// "notes.cache" in the application.yml to the fields of this class
+@ConfigurationProperties(prefix = "notes.cache")
+// @Data is a Lombok annotation to create the getters, setters, equals, hash, and
+// toString methods
+@Data
+// SecondLevelCacheProperties contains the size and the time to live of each
+// region of the Hibernate second level cache
+public class SecondLevelCacheProperties {
+
+    // the regions of the second level cache by their name. The name of a region is
+    // the region used in the @Cache and @NaturalIdCache annotations of the entities
+    private Map<String, Region> regions = new LinkedHashMap<>();
+
+    // @Data is a Lombok annotation to create the getters, setters, equals, hash,
+    // and toString methods
+    @Data
+    // Region contains the settings of a single cache region
+    public static class Region {
+
+        // maximum number of entries kept in the region. The least recently used
+        // entries are removed when the region is full
+        private long maximumSize = 10000;
+        // time after which an entry is removed from the region after it was written
+        // so that the rows changed directly in the database are read again
+        private Duration expireAfterWrite = Duration.ofMinutes(10);
+
+    }
+
+}
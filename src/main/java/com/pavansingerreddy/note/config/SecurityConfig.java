@@ -30,6 +30,8 @@ import com.pavansingerreddy.note.authentication_providers.JwtAuthenticationProvi
 import com.pavansingerreddy.note.csrf.CsrfCookieFilter;
 import com.pavansingerreddy.note.csrf.SPACsrfTokenRequestHandler;
 
+import jakarta.servlet.DispatcherType;
+
 // configuration annotation is used on classes which define beans. @Configuration classes are also @Component classes, so they are candidates for component scanning. But they have an added benefit: they can also define @Bean methods, which return instances of beans. These beans are managed by Spring and can be injected into other beans.
 @Configuration
 
@@ -169,6 +171,13 @@ public class SecurityConfig {
                     auth.requestMatchers("/api/user/resetPassword").permitAll();
                     auth.requestMatchers("/api/user/verifyResetPassword").permitAll();
                     auth.requestMatchers("/api/user/isValidPasswordResetToken").permitAll();
+                    // Permitting the async dispatches which finish the responses of the streamed
+                    // notes (/api/notes/get returns a StreamingResponseBody) and of the
+                    // Server-Sent Events connections. The request was already authorized when it
+                    // started, and our jwtTokenFilter is a OncePerRequestFilter which does not run
+                    // again on the async dispatch of the stateless session, so the dispatch would
+                    // be rejected as not authenticated.
+                    auth.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll();
                     // Requiring authentication for all other requests.
                     auth.anyRequest().authenticated();
                 })
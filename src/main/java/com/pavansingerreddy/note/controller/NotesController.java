@@ -1,10 +1,14 @@
 package com.pavansingerreddy.note.controller;
 
-import java.security.Principal;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -14,12 +18,23 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.pavansingerreddy.note.dto.NoteChangesDto;
+import com.pavansingerreddy.note.dto.NoteCursorPageDto;
 import com.pavansingerreddy.note.dto.NoteDto;
-import com.pavansingerreddy.note.dto.PagableNoteDto;
+import com.pavansingerreddy.note.dto.NoteOperationResultDto;
+import com.pavansingerreddy.note.dto.NoteSearchPageDto;
+import com.pavansingerreddy.note.exception.InvalidCursorException;
 import com.pavansingerreddy.note.exception.NoteDoesNotExistsException;
 import com.pavansingerreddy.note.exception.UserNotFoundException;
+import com.pavansingerreddy.note.model.NoteBatchModel;
 import com.pavansingerreddy.note.model.NoteModel;
+import com.pavansingerreddy.note.model.UserPrincipal;
 import com.pavansingerreddy.note.services.NoteService;
 
 import jakarta.annotation.security.RolesAllowed;
@@ -49,6 +64,11 @@ public class NotesController {
     @Autowired
     NoteService noteService;
 
+    // autowiring the ObjectMapper configured by spring so that the streamed notes
+    // are written in the same JSON format as the other responses
+    @Autowired
+    ObjectMapper objectMapper;
+
     // @PostMapping is a Spring annotation that maps HTTP POST requests onto this
     // method. "/api/notes/create" is the path at which this method will be
     // available.
@@ -59,19 +79,42 @@ public class NotesController {
     @RolesAllowed("USER")
     // This method returns a ResponseEntity containing a NoteDto object.
     // It throws a UserNotFoundException if the user is not found.
-    // The Principal object represents the currently authenticated user.
+    // The UserPrincipal object represents the currently authenticated user.
     // @RequestBody is a Spring annotation which is used to get JSON object in the
     // request body which will be converted to a NoteModel object.
     // @Valid is a Java annotation used to validate that the parameters of the
     // method or constructor are valid. it contains the title and content in it
-    public ResponseEntity<NoteDto> createNewNote(Principal principal, @RequestBody @Valid NoteModel noteModel)
+    public ResponseEntity<NoteDto> createNewNote(@AuthenticationPrincipal UserPrincipal userPrincipal,
+            @RequestBody @Valid NoteModel noteModel)
             throws UserNotFoundException {
-        // Get the name (email) of the authenticated user.
-        String userEmail = principal.getName();
         // Call a method in noteService to create a new note with the details from the
-        // NoteModel object and the user's email. Return the created NoteDto object in
+        // NoteModel object and the authenticated user. Return the created NoteDto object in
         // the response with a status of 200 OK.
-        return ResponseEntity.ok(noteService.createNewNote(noteModel, userEmail));
+        return ResponseEntity.ok(noteService.createNewNote(noteModel, userPrincipal));
+    }
+
+    // @PostMapping is a Spring annotation that maps HTTP POST requests onto this
+    // method. "/api/notes/batch" is the path at which this method will be
+    // available.
+    @PostMapping("/batch")
+    // @RolesAllowed is a Java annotation used to specify the security roles
+    // permitted to access method(s) in an application.
+    // The "USER" role is allowed to access this method.
+    @RolesAllowed("USER")
+    // This method returns a ResponseEntity containing the list of the results of
+    // the operations of the batch in the order of the operations. It throws a
+    // UserNotFoundException if the user is not found. @RequestBody converts the JSON
+    // object of the request body to a NoteBatchModel which contains the create,
+    // update and delete operations, and @Valid validates it. A client which imports
+    // or syncs many notes sends them with one request instead of one request per
+    // note
+    public ResponseEntity<List<NoteOperationResultDto>> applyBatch(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @RequestBody @Valid NoteBatchModel noteBatchModel)
+            throws UserNotFoundException {
+        // Call a method in noteService to apply the operations of the batch in a single
+        // transaction. Return the results in the response with a status of 200 OK.
+        return ResponseEntity.ok(noteService.applyBatch(userPrincipal, noteBatchModel.getOperations()));
     }
 
     // @GetMapping is a Spring annotation that maps HTTP GET requests onto this
@@ -84,21 +127,20 @@ public class NotesController {
     @RolesAllowed("USER")
     // This method returns a ResponseEntity containing a NoteDto object.
     // It throws a NoteDoesNotExistsException if the note is not found.
-    // The Principal object represents the currently authenticated user.
+    // The UserPrincipal object represents the currently authenticated user.
     // @PathVariable is a Spring annotation which indicates that a method parameter
     // should be bound to a URI template variable.Here it's binding the path
     // variable {noteId} to the method parameter noteId.
-    public ResponseEntity<NoteDto> getASpecificNote(Principal principal, @PathVariable("noteId") Long noteId)
+    public ResponseEntity<NoteDto> getASpecificNote(@AuthenticationPrincipal UserPrincipal userPrincipal,
+            @PathVariable("noteId") Long noteId)
             throws NoteDoesNotExistsException {
-        // Get the name (email) of the authenticated user.
-        String userEmail = principal.getName();
         // Call a method in noteService to get a specific note identified by the noteId
-        // and the user's email.It checks if the note is present with the given id and
-        // the user is also present with the given email if they both are present then
+        // and the authenticated user.It checks if the note is present with the given id and
+        // the user is also present with the given user id if they both are present then
         // if checks if the note belongs to the given user or not after checking all
         // that It Return the NoteDto object in the response with a status
         // of 200 OK.
-        return ResponseEntity.ok(noteService.getASpecificNote(userEmail, noteId));
+        return ResponseEntity.ok(noteService.getASpecificNote(userPrincipal, noteId));
     }
 
     // @GetMapping is a Spring annotation that maps HTTP GET requests onto this
@@ -108,16 +150,48 @@ public class NotesController {
     // permitted to access method(s) in an application.The "USER" role is allowed to
     // access this method.
     @RolesAllowed("USER")
-    // This method returns a ResponseEntity containing a list of NoteDto objects.
-    // It throws a NoteDoesNotExistsException if no notes are found.
-    // The Principal object represents the currently authenticated user.
-    public ResponseEntity<List<NoteDto>> getAllNotes(Principal principal) throws NoteDoesNotExistsException {
-        // Get the name (email) of the authenticated user.
-        String userEmail = principal.getName();
-        // Call a method in noteService to get all notes associated with the user's
-        // email. Return the list of NoteDto objects in the response with a status of
-        // 200 OK.
-        return ResponseEntity.ok(noteService.getAllNotes(userEmail));
+    // This method returns a ResponseEntity containing a StreamingResponseBody which
+    // writes the JSON array of all the notes of the user.The notes are written to
+    // the response one by one as they are read from the database so the whole list
+    // of notes is never held in memory. The UserPrincipal object represents the
+    // currently authenticated user. By default the notes are written as
+    // NoteSummaryDto objects with a preview of the content, the whole notes are only
+    // written if the query parameter "content" is true.
+    public ResponseEntity<StreamingResponseBody> getAllNotes(@AuthenticationPrincipal UserPrincipal userPrincipal,
+            @RequestParam(name = "content", defaultValue = "false") boolean includeContent)
+            throws NoteDoesNotExistsException {
+        // finding the user before the response is started so that a user who is not
+        // found gets the error response of the NoteDoesNotExistsException instead of a
+        // broken stream
+        Long userId = noteService.getUserId(userPrincipal);
+        // The StreamingResponseBody is executed by spring after this method returns and
+        // it writes directly to the output stream of the response
+        StreamingResponseBody responseBody = outputStream -> {
+            // creating a JSON generator which writes to the response output stream. It
+            // buffers a few kilobytes and then writes them to the client
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+            generator.writeStartArray();
+            // our lambda writes each note it gets as an element of the JSON array
+            Consumer<Object> noteWriter = note -> {
+                try {
+                    generator.writeObject(note);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+            // Call a method in noteService which passes each note or summary of a note
+            // of the user to our lambda
+            if (includeContent) {
+                noteService.streamAllNotes(userId, noteWriter::accept);
+            } else {
+                noteService.streamAllNoteSummaries(userId, noteWriter::accept);
+            }
+            // closing the JSON array and flushing the remaining buffered notes
+            generator.writeEndArray();
+            generator.close();
+        };
+        // Return the streaming body in the response with a status of 200 OK.
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(responseBody);
     }
 
     // @PutMapping is a Spring annotation that maps HTTP PUT requests onto this
@@ -130,20 +204,19 @@ public class NotesController {
     @RolesAllowed("USER")
     // This method returns a ResponseEntity containing a NoteDto object.
     // It throws a NoteDoesNotExistsException if the note is not found.
-    // The Principal object represents the currently authenticated user.
+    // The UserPrincipal object represents the currently authenticated user.
     // @PathVariable is a Spring annotation which indicates that a method parameter
     // should be bound to a URI template variable. Here it's binding the path
     // variable {noteId} to the method parameter noteId. @RequestBody is a Spring
     // annotation which is used to get a JSON object in the request body which will
     // be converted to a NoteModel object.
-    public ResponseEntity<NoteDto> updateSpecificNote(Principal principal, @PathVariable("noteId") Long noteId,
+    public ResponseEntity<NoteDto> updateSpecificNote(@AuthenticationPrincipal UserPrincipal userPrincipal,
+            @PathVariable("noteId") Long noteId,
             @RequestBody NoteModel noteModel) throws NoteDoesNotExistsException {
-        // Get the name (email) of the authenticated user.
-        String userEmail = principal.getName();
         // Call a method in noteService to update a specific note identified by the
-        // noteId and the user's email with the details from the NoteModel object.
+        // noteId and the authenticated user with the details from the NoteModel object.
         // Return the updated NoteDto object in the response with a status of 200 OK.
-        return ResponseEntity.ok(noteService.updateSpecificNote(userEmail, noteId, noteModel));
+        return ResponseEntity.ok(noteService.updateSpecificNote(userPrincipal, noteId, noteModel));
     }
 
     // @DeleteMapping is a Spring annotation that maps HTTP DELETE requests onto
@@ -156,21 +229,20 @@ public class NotesController {
     @RolesAllowed("USER")
     // This method returns a ResponseEntity containing a NoteDto object.
     // It throws a NoteDoesNotExistsException if the note is not found.
-    // The Principal object represents the currently authenticated user.
+    // The UserPrincipal object represents the currently authenticated user.
     // @PathVariable is a Spring annotation which indicates that a method parameter
     // should be bound to a URI template variable. Here it's binding the path
     // variable {noteId} to the method parameter noteId.
 
-    public ResponseEntity<NoteDto> deleteASpecificNote(Principal principal, @PathVariable("noteId") Long noteId)
+    public ResponseEntity<NoteDto> deleteASpecificNote(@AuthenticationPrincipal UserPrincipal userPrincipal,
+            @PathVariable("noteId") Long noteId)
             throws NoteDoesNotExistsException {
 
-        // Get the name (email) of the authenticated user.
-        String userEmail = principal.getName();
         // Call a method in noteService to delete a specific note identified by the
-        // noteId and the user's email. Return the deleted NoteDto object in the
+        // noteId and the authenticated user. Return the deleted NoteDto object in the
         // response with a status of 200 OK.
 
-        return ResponseEntity.ok(noteService.deleteASpecificNote(userEmail, noteId));
+        return ResponseEntity.ok(noteService.deleteASpecificNote(userPrincipal, noteId));
     }
 
     // @GetMapping is a Spring annotation that maps HTTP GET requests onto this
@@ -181,21 +253,24 @@ public class NotesController {
     // permitted to access method(s) in an application.
     // The "USER" role is allowed to access this method.
     @RolesAllowed("USER")
-    // This method returns a ResponseEntity containing a list of NoteDto objects.
-    // It throws a NoteDoesNotExistsException if no notes are found.
-    // The Principal object represents the currently authenticated user.
-    // @RequestParam is a Spring annotation which can be used to get the query
+    // This method returns a ResponseEntity containing a NoteSearchPageDto object
+    // which has a page of the matching notes, the most relevant note first, and the
+    // number of matching notes. It throws a NoteDoesNotExistsException if the user
+    // is not found. The UserPrincipal object represents the currently authenticated
+    // user. @RequestParam is a Spring annotation which can be used to get the query
     // parameter of the request. Here it's binding the request query parameter
-    // "term" to the method parameter searchTerm.
+    // "term" to the method parameter searchTerm. If "page" is not provided in the
+    // request, it defaults to 0 and if "size" is not provided, it defaults to 10.
 
-    public ResponseEntity<List<NoteDto>> getNotes(Principal principal, @RequestParam(name = "term") String searchTerm)
+    public ResponseEntity<NoteSearchPageDto> getNotes(@AuthenticationPrincipal UserPrincipal userPrincipal,
+            @RequestParam(name = "term") String searchTerm,
+            @RequestParam(name = "page", defaultValue = "0") int page,
+            @RequestParam(name = "size", defaultValue = "10") int size)
             throws NoteDoesNotExistsException {
-        // Get the name (email) of the authenticated user.
-        String userEmail = principal.getName();
-        // Call a method in noteService to search for notes associated with the user's
-        // email and the search term. Return the list of NoteDto objects in the response
-        // with a status of 200 OK.
-                return ResponseEntity.ok(noteService.searchNotes(userEmail, searchTerm));
+        // Call a method in noteService to search for notes associated with the
+        // authenticated user and the search term. Return the page of the matching notes
+        // in the response with a status of 200 OK.
+                return ResponseEntity.ok(noteService.searchNotes(userPrincipal, searchTerm, page, size));
 
     }
 
@@ -205,25 +280,103 @@ public class NotesController {
     @GetMapping("/get/paged")
     // This method returns a ResponseEntity containing a list of PagableNoteDto
     // objects.PagableNoteDto is similar to noteDto but it contains additional
-    // attribute which specifies total pages. The Principal object represents the
+    // attribute which specifies total pages. The UserPrincipal object represents the
     // currently authenticated user. @RequestParam is a Spring annotation which
     // indicates that a method parameter should be bound to a web request query
     // parameter. Here it's binding the request query parameter "page" to the method
     // parameter page. If "page" is not provided in the request, it defaults to 0.
     // Here it's binding the request query parameter "size" to the method parameter
-    // size. If "size" is not provided in the request, it defaults to 10.
+    // size. If "size" is not provided in the request, it defaults to 10. Unless
+    // the query parameter "content" is true the list contains PagableNoteSummaryDto
+    // objects which only have a preview of the content.
 
-    public ResponseEntity<List<PagableNoteDto>> getPagedNotes(Principal principal,
+    public ResponseEntity<List<?>> getPagedNotes(@AuthenticationPrincipal UserPrincipal userPrincipal,
             @RequestParam(name = "page", defaultValue = "0") int page,
-            @RequestParam(name = "size", defaultValue = "10") int size) throws NoteDoesNotExistsException {
+            @RequestParam(name = "size", defaultValue = "10") int size,
+            @RequestParam(name = "content", defaultValue = "false") boolean includeContent)
+            throws NoteDoesNotExistsException {
 
-        // Get the name (email) of the authenticated user.
-        String userEmail = principal.getName();
         // Call a method in noteService to get a page of notes associated with the
-        // user's email. The page number and size are specified by the page and size
+        // authenticated user. The page number and size are specified by the page and size
         // parameters.
+        if (includeContent) {
+            return ResponseEntity.ok(noteService.getPagedNotes(userPrincipal, page, size));
+        }
+        return ResponseEntity.ok(noteService.getPagedNoteSummaries(userPrincipal, page, size));
 
-        return ResponseEntity.ok(noteService.getPagedNotes(userEmail, page, size));
+    }
 
+    // @GetMapping is a Spring annotation that maps HTTP GET requests onto this
+    // method. "/api/notes/get/paged/cursor" is the path at which this method will
+    // be available.
+    @GetMapping("/get/paged/cursor")
+    // @RolesAllowed is a Java annotation used to specify the security roles
+    // permitted to access method(s) in an application.The "USER" role is allowed to
+    // access this method.
+    @RolesAllowed("USER")
+    // This method returns a ResponseEntity containing a NoteCursorPageDto which
+    // contains a page of notes and the cursor of the next page. It is the cursor
+    // based version of /get/paged which does not count the notes of the user and
+    // does not skip the notes of the previous pages, so scrolling deep into the
+    // notes is as fast as loading the first page. @RequestParam binds the
+    // optional query parameter "cursor" (the nextCursor of the previous page, not
+    // sent for the first page) and "size" which defaults to 10. The page contains
+    // NoteSummaryDto objects unless the query parameter "content" is true.
+    public ResponseEntity<NoteCursorPageDto<?>> getNotesAfterCursor(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = "10") int size,
+            @RequestParam(name = "content", defaultValue = "false") boolean includeContent)
+            throws NoteDoesNotExistsException, InvalidCursorException {
+
+        // Call a method in noteService to get the notes after the given cursor.
+        if (includeContent) {
+            return ResponseEntity.ok(noteService.getNotesAfterCursor(userPrincipal, cursor, size));
+        }
+        return ResponseEntity.ok(noteService.getNoteSummariesAfterCursor(userPrincipal, cursor, size));
+    }
+
+    // @GetMapping is a Spring annotation that maps HTTP GET requests onto this
+    // method. "/api/notes/changes" is the path at which this method will be
+    // available.
+    @GetMapping("/changes")
+    // @RolesAllowed is a Java annotation used to specify the security roles
+    // permitted to access method(s) in an application.The "USER" role is allowed to
+    // access this method.
+    @RolesAllowed("USER")
+    // This method returns a ResponseEntity containing a NoteChangesDto which
+    // contains the notes which were created, updated or deleted after the cursor of
+    // the previous sync and the cursor for the next sync. A client which keeps its
+    // notes offline calls it on launch instead of downloading all the notes again.
+    // @RequestParam binds the optional query parameter "since" (the cursor of the
+    // previous response, not sent for the first sync) and "size" which defaults to
+    // 100.
+    public ResponseEntity<NoteChangesDto> getNoteChanges(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @RequestParam(name = "since", required = false) String since,
+            @RequestParam(name = "size", defaultValue = "100") int size)
+            throws NoteDoesNotExistsException, InvalidCursorException {
+
+        // Call a method in noteService to get the changes after the given cursor.
+        return ResponseEntity.ok(noteService.getNoteChanges(userPrincipal, since, size));
+    }
+
+    // @GetMapping is a Spring annotation that maps HTTP GET requests onto this
+    // method. "/api/notes/events" is the path at which this method will be
+    // available, and produces makes it answer with a text/event-stream.
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    // @RolesAllowed is a Java annotation used to specify the security roles
+    // permitted to access method(s) in an application.The "USER" role is allowed to
+    // access this method.
+    @RolesAllowed("USER")
+    // This method returns an SseEmitter which keeps the response open and pushes a
+    // "change" event (noteId, op, updatedAt, changeSequence) whenever a note of the
+    // user is created, updated or deleted on any device, so the clients don't have
+    // to poll for the changes. A "resync" event means that events were dropped
+    // because the client was too slow, and the client reads its changes from
+    // /api/notes/changes after it (re)connects and after a resync event.
+    public SseEmitter getNoteEvents(@AuthenticationPrincipal UserPrincipal userPrincipal)
+            throws UserNotFoundException {
+        return noteService.subscribeToNoteChanges(userPrincipal);
     }
 }
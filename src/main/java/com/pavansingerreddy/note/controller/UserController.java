@@ -156,12 +156,16 @@ public class UserController {
         // task of creating a new user.Here application url contains the root path or
         // url of the frontend application and User object contains the details of the
         // registered new user and the mailNoToUse contains the mail number from our
-        // mail providers to use for sending the email for verification
-        publisher.publishEvent(new RegistrationCompleteEvent(user, UserApiApplicationUrl, mailNoToUse));
+        // mail providers to use for sending the email for verification. The mail
+        // number is taken from the user as createUser may have reserved another sender
+        // if the chosen one was taken by a concurrent registration
+        publisher.publishEvent(
+                new RegistrationCompleteEvent(user, UserApiApplicationUrl, user.getMailNoToUseForSendingEmail()));
         // after publishing the event we are returning the response of user information
-        // using UserDto as we made the RegistrationCompleteEventListener Async we will
-        // not wait for the mail to get sent the event runs on a separate thread and the
-        // response get's sent after we publish the event
+        // using UserDto. The RegistrationCompleteEventListener only adds the email to
+        // the email outbox so we will not wait for the mail to get sent. The
+        // EmailOutboxDispatcher sends it in the background after the response get's
+        // sent
         return ResponseEntity.ok(DTOConversionUtil.userToUserDTO(user));
     }
 
@@ -0,0 +1,20 @@
+package com.pavansingerreddy.note.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// AllArgsConstructor annotation from Lombok generates a constructor with one parameter for each field in your class. Fields are initialized in the order they are declared.
+@AllArgsConstructor
+// NoArgsConstructor annotation from Lombok generates a no-args constructor.
+@NoArgsConstructor
+// @Data is a Lombok annotation to create the getters, setters, equals, hash,
+// and toString methods
+@Data
+// This DTO marks a part of a text which matches the search term. start is the
+// index of the first matching character (in UTF-16 code units like the indexes
+// of a JavaScript string) and length is the number of matching characters
+public class HighlightDto {
+    private int start;
+    private int length;
+}
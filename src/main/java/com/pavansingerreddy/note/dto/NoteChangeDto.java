@@ -0,0 +1,34 @@
+package com.pavansingerreddy.note.dto;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// AllArgsConstructor annotation from Lombok generates a constructor with one parameter for each field in your class. Fields are initialized in the order they are declared.
+@AllArgsConstructor
+// NoArgsConstructor annotation from Lombok generates a no-args constructor.
+@NoArgsConstructor
+// @Data is a Lombok annotation to create the getters, setters, equals, hash,
+// and toString methods
+@Data
+// This DTO is a single change of the notes of a user which is returned by the
+// sync api. A SAVED change contains the whole note as it is now, a DELETED change
+// only contains the id of the deleted note and the time it was deleted at
+public class NoteChangeDto {
+
+    // the kinds of changes. SAVED is a created or updated note
+    public enum Type {
+        SAVED, DELETED
+    }
+
+    private Type type;
+    private long noteId;
+    private long changeSequence;
+    private String title;
+    private String content;
+    private Date createdAt;
+    private Date updatedAt;
+    private Date deletedAt;
+}
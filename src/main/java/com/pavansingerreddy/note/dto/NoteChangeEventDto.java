@@ -0,0 +1,26 @@
+package com.pavansingerreddy.note.dto;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// AllArgsConstructor annotation from Lombok generates a constructor with one parameter for each field in your class. Fields are initialized in the order they are declared.
+@AllArgsConstructor
+// NoArgsConstructor annotation from Lombok generates a no-args constructor.
+@NoArgsConstructor
+// @Data is a Lombok annotation to create the getters, setters, equals, hash,
+// and toString methods
+@Data
+// This DTO is the data of a "change" event which is pushed to the connected
+// devices of a user when one of the notes of the user is created, updated or
+// deleted. It does not contain the note itself, the device reads the changed
+// notes from the changes api. updatedAt is the time the note was deleted at for
+// a DELETED change
+public class NoteChangeEventDto {
+    private long noteId;
+    private NoteChangeDto.Type op;
+    private Date updatedAt;
+    private long changeSequence;
+}
@@ -0,0 +1,27 @@
+package com.pavansingerreddy.note.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// AllArgsConstructor annotation from Lombok generates a constructor with one parameter for each field in your class. Fields are initialized in the order they are declared.
+@AllArgsConstructor
+// NoArgsConstructor annotation from Lombok generates a no-args constructor.
+@NoArgsConstructor
+// @Data is a Lombok annotation to create the getters, setters, equals, hash,
+// and toString methods
+@Data
+// This DTO contains a page of the changes of the notes of a user in the order in
+// which they were made. cursor should be stored by the client and sent as
+// "since" on the next sync (or for the next page if hasMore is true). If
+// resyncRequired is true then the cursor is too old because the deleted notes
+// after it were forgotten, so the client has to drop its notes and sync again
+// without a cursor
+public class NoteChangesDto {
+    private List<NoteChangeDto> changes;
+    private String cursor;
+    private boolean hasMore;
+    private boolean resyncRequired;
+}
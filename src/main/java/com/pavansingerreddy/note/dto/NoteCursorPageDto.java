@@ -0,0 +1,22 @@
+package com.pavansingerreddy.note.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// AllArgsConstructor annotation from Lombok generates a constructor with one parameter for each field in your class. Fields are initialized in the order they are declared.
+@AllArgsConstructor
+// NoArgsConstructor annotation from Lombok generates a no-args constructor.
+@NoArgsConstructor
+// @Data is a Lombok annotation to create the getters, setters, equals, hash,
+// and toString methods
+@Data
+// This DTO contains a page of notes of the cursor based pagination and the
+// cursor which should be sent to get the next page. nextCursor is null if
+// there are no more notes. The notes are NoteDto or NoteSummaryDto objects
+public class NoteCursorPageDto<T> {
+    private List<T> notes;
+    private String nextCursor;
+}
@@ -0,0 +1,38 @@
+package com.pavansingerreddy.note.dto;
+
+import java.util.Date;
+
+import com.pavansingerreddy.note.model.NoteOperationModel;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// AllArgsConstructor annotation from Lombok generates a constructor with one parameter for each field in your class. Fields are initialized in the order they are declared.
+@AllArgsConstructor
+// NoArgsConstructor annotation from Lombok generates a no-args constructor.
+@NoArgsConstructor
+// @Data is a Lombok annotation to create the getters, setters, equals, hash,
+// and toString methods
+@Data
+// This DTO is the result of a single operation of a batch request. index is the
+// position of the operation in the request, noteId is the id of the created,
+// updated or deleted note and updatedAt is the new updated at time of a created
+// or updated note. errorMessage tells why an operation which was not applied
+// failed
+public class NoteOperationResultDto {
+
+    // the outcomes of an operation. INVALID means that the operation is missing a
+    // field it needs and NOT_FOUND that the note does not exist or does not belong
+    // to the user
+    public enum Status {
+        OK, INVALID, NOT_FOUND
+    }
+
+    private int index;
+    private NoteOperationModel.Type type;
+    private Status status;
+    private Long noteId;
+    private Date updatedAt;
+    private String errorMessage;
+}
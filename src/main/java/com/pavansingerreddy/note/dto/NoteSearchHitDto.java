@@ -0,0 +1,32 @@
+package com.pavansingerreddy.note.dto;
+
+import java.util.Date;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// AllArgsConstructor annotation from Lombok generates a constructor with one parameter for each field in your class. Fields are initialized in the order they are declared.
+@AllArgsConstructor
+// NoArgsConstructor annotation from Lombok generates a no-args constructor.
+@NoArgsConstructor
+// @Data is a Lombok annotation to create the getters, setters, equals, hash,
+// and toString methods
+@Data
+// This DTO is a note which matches a search term. Instead of the whole content
+// it only contains a snippet of the content around the first matches, and the
+// parts of the title and of the snippet which match the search term. The whole
+// note can be fetched from /api/notes/get/{noteId} when it is opened. score is
+// the relevance calculated by the database, it is null if the database does not
+// rank the matches
+public class NoteSearchHitDto {
+    private long noteId;
+    private String title;
+    private List<HighlightDto> titleHighlights;
+    private String snippet;
+    private List<HighlightDto> snippetHighlights;
+    private Double score;
+    private Date createdAt;
+    private Date updatedAt;
+}
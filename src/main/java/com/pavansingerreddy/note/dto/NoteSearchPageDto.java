@@ -0,0 +1,27 @@
+package com.pavansingerreddy.note.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// AllArgsConstructor annotation from Lombok generates a constructor with one parameter for each field in your class. Fields are initialized in the order they are declared.
+@AllArgsConstructor
+// NoArgsConstructor annotation from Lombok generates a no-args constructor.
+@NoArgsConstructor
+// @Data is a Lombok annotation to create the getters, setters, equals, hash,
+// and toString methods
+@Data
+// This DTO contains a page of the notes which match a search term, the most
+// relevant note first. The notes only contain a snippet of their content. totalHits is the number of matching notes which are
+// counted only up to the maximum number of search results, so if totalHitsExact
+// is false there are more matching notes than totalHits and the search term
+// should be refined
+public class NoteSearchPageDto {
+    private List<NoteSearchHitDto> hits;
+    private int page;
+    private int size;
+    private long totalHits;
+    private boolean totalHitsExact;
+}
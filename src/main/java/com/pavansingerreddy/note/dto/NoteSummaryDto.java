@@ -0,0 +1,24 @@
+package com.pavansingerreddy.note.dto;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// AllArgsConstructor annotation from Lombok generates a constructor with one parameter for each field in your class. Fields are initialized in the order they are declared.
+@AllArgsConstructor
+// NoArgsConstructor annotation from Lombok generates a no-args constructor.
+@NoArgsConstructor
+// @Data is a Lombok annotation to create the getters, setters, equals, hash,
+// and toString methods
+@Data
+// This DTO is the short form of a note which is returned by the list endpoints.
+// Instead of the content it contains a preview of the first characters of the
+// content. The whole note can be fetched from /api/notes/get/{noteId}
+public class NoteSummaryDto {
+    private long noteId;
+    private String title;
+    private String preview;
+    private Date updatedAt;
+}
@@ -0,0 +1,111 @@
+package com.pavansingerreddy.note.entity;
+
+import java.util.Date;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Entity annotation tells Hibernate to make a table out of this class.
+@Entity
+// Table annotation names the table "email_outbox" and defines an index on the
+// status and the next attempt time which is used by the dispatcher to find the
+// emails which should be sent now
+@Table(name = "email_outbox", indexes = @Index(name = "idx_email_outbox_status_next_attempt_at", columnList = "status, next_attempt_at"))
+// Setter annotation from Lombok generates setters for all fields.
+@Setter
+// Getter annotation from Lombok generates getters for all fields.
+@Getter
+// NoArgsConstructor annotation from Lombok generates a no-args constructor.
+@NoArgsConstructor
+// EmailOutbox is an email which should be sent to a user. It is saved in the same
+// transaction as the verification token or the password reset token so the
+// email is never lost if the application stops before it is sent. The
+// EmailOutboxDispatcher sends the pending emails in the background
+public class EmailOutbox {
+
+    // Status of the email in the outbox
+    public enum Status {
+        // the email is waiting to be sent
+        PENDING,
+        // the email was claimed by a dispatcher which is sending it. If the dispatcher
+        // stops before it records the result the email is claimed again after the
+        // nextAttemptAt time
+        PROCESSING,
+        // the email was sent
+        SENT,
+        // the email could not be sent after the maximum number of attempts
+        FAILED
+    }
+
+    // Id annotation specifies the primary key of an entity.
+    @Id
+    // GeneratedValue annotation provides for the specification of generation
+    // strategies for the values of primary keys.
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // id field holds the ID of the email.
+    private Long id;
+
+    // email address of the user to which the email is sent
+    @Column(nullable = false)
+    private String toEmail;
+
+    // subject of the email
+    @Column(nullable = false)
+    private String subject;
+
+    // body of the email
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String body;
+
+    // mail number from our mail providers which should be used for sending the
+    // email
+    private int mailNoToUseForSendingEmail;
+
+    // Enumerated annotation stores the name of the status instead of its position
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    // number of times the dispatcher tried to send the email
+    private int attempts;
+
+    // time after which the dispatcher can claim the email. For a PROCESSING email
+    // it is the time until which the email belongs to the dispatcher which claimed
+    // it
+    @Column(name = "next_attempt_at", nullable = false)
+    private Date nextAttemptAt;
+
+    // time at which the email was added to the outbox
+    @Column(nullable = false)
+    private Date createdAt;
+
+    // time at which the email was sent
+    private Date sentAt;
+
+    // error of the last failed attempt
+    @Column(length = 1000)
+    private String lastError;
+
+    // This constructor creates a new pending email which can be sent immediately
+    public EmailOutbox(String toEmail, String subject, String body, int mailNoToUseForSendingEmail) {
+        this.toEmail = toEmail;
+        this.subject = subject;
+        this.body = body;
+        this.mailNoToUseForSendingEmail = mailNoToUseForSendingEmail;
+        this.status = Status.PENDING;
+        this.attempts = 0;
+        this.createdAt = new Date();
+        this.nextAttemptAt = this.createdAt;
+    }
+
+}
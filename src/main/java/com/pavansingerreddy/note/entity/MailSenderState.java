@@ -0,0 +1,45 @@
+package com.pavansingerreddy.note.entity;
+
+import java.util.Date;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Entity annotation tells Hibernate to make a table out of this class.
+@Entity
+// Table annotation names the table "mail_sender_state"
+@Table(name = "mail_sender_state")
+// Setter annotation from Lombok generates setters for all fields.
+@Setter
+// Getter annotation from Lombok generates getters for all fields.
+@Getter
+// NoArgsConstructor annotation from Lombok generates a no-args constructor.
+@NoArgsConstructor
+// AllArgsConstructor annotation from Lombok generates a constructor with all
+// fields.
+@AllArgsConstructor
+// MailSenderState contains one row for every mail sender from the
+// application.yml with the state of the sender's token bucket. The row is shared
+// by all the instances of the application so together they never send more
+// emails with a sender than its rate limit allows
+public class MailSenderState {
+
+    // Id annotation specifies the primary key of an entity. The mail number of the
+    // sender is the primary key as there is only one row for every sender
+    @Id
+    // mailNo is the number of the mail sender in the application.yml
+    private Integer mailNo;
+
+    // time at which the token bucket of the sender is full again. Every email which
+    // is sent moves it forward by the refill period of the sender, so the sender has
+    // a token left as long as this time is less than capacity refill periods away
+    @Column(name = "refilled_at", nullable = false)
+    private Date refilledAt;
+
+}
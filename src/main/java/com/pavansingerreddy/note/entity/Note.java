@@ -2,17 +2,26 @@ package com.pavansingerreddy.note.entity;
 
 import java.util.Date;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 
+import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -37,12 +46,43 @@ import lombok.Setter;
                 generator = ObjectIdGenerators.PropertyGenerator.class,
                 // This specifies the property of the entity that will be used as the ID.
                 property = "noteId")
+// Table annotation is used here to define the indexes on the note table. The index
+// on (user_id, updated_at, note_id) matches the order in which the notes of a
+// user are listed, so the keyset (cursor) pagination query can seek directly to
+// the position of the cursor instead of counting and skipping the previous rows.
+// The index on (user_id, change_sequence, note_id) does the same for the changes
+// of the notes which are read by the sync clients
+@Table(indexes = {
+                @Index(name = "idx_note_user_updated_at_note_id", columnList = "user_id, updated_at, note_id"),
+                @Index(name = "idx_note_user_change_sequence_note_id", columnList = "user_id, change_sequence, note_id") })
+// Cache annotation stores the notes in the "notes" region of the Hibernate
+// second level cache so that opening the same note again is answered from
+// memory. READ_WRITE makes Hibernate update or remove the cached note when the
+// note is updated or deleted
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "notes")
 public class Note {
+
+        // the number of characters of the content which are kept as the preview
+        public static final int PREVIEW_LENGTH = 200;
+        // the number of ids which are taken from the note_id_seq sequence at once. It
+        // is the same as the hibernate.jdbc.batch_size so that a full batch of new
+        // notes needs a single call to the sequence
+        public static final int ID_ALLOCATION_SIZE = 50;
+
         // This annotation specifies the primary key of an entity.
         @Id
         // This annotation provides for the specification of generation strategies for
-        // the values of primary keys.
-        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        // the values of primary keys. The ids come from a sequence instead of an
+        // identity column so that Hibernate knows the id before the INSERT and can send
+        // the inserts of many notes in one JDBC batch
+        @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "note_id_seq")
+        // This annotation defines the note_id_seq sequence. Hibernate takes
+        // ID_ALLOCATION_SIZE ids at once and hands them out from memory (the pooled-lo
+        // optimizer which is chosen in the application.yml). MySQL has no sequences so
+        // Hibernate keeps the next value in a note_id_seq table instead
+        @SequenceGenerator(name = "note_id_seq", sequenceName = "note_id_seq", allocationSize = ID_ALLOCATION_SIZE)
+        // The column name is given explicitly because it is used in the index above.
+        @Column(name = "note_id")
         // This field holds the note ID.
         private long noteId;
         // This annotation is used to specify the mapped column for a persistent
@@ -50,20 +90,44 @@ public class Note {
         @Column(columnDefinition = "TEXT")
         // This field holds the title of the note.
         private String title;
+        // This annotation defines the one-to-one relationship to the content of the
+        // note which is stored in the note_content table. The content is only loaded
+        // when it is used, and it is saved and deleted together with the note.
+        // optional = false tells Hibernate that every note has a content so it can
+        // create a lazy proxy without querying the note_content table
+        @OneToOne(mappedBy = "note", fetch = FetchType.LAZY, optional = false, cascade = CascadeType.ALL, orphanRemoval = true)
+        // This field holds the content of the note.
+        private NoteContent noteContent;
         // This annotation is used to specify the mapped column for a persistent
         // property or field.
-        @Column(columnDefinition = "TEXT")
-        // This field holds the content of the note.
-        private String content;
+        @Column(length = PREVIEW_LENGTH)
+        // This field holds the first characters of the content so that the list
+        // of notes can be shown without reading the note_content table.
+        private String preview;
+        // ColumnDefault gives the existing rows a value when the column is added.
+        @ColumnDefault("0")
+        // This field holds the number of characters of the content.
+        private int contentLength;
         // This field holds the date when the note was created.
         private Date createdAt;
+        // The column name is given explicitly because it is used in the index above.
+        @Column(name = "updated_at")
         // This field holds the date when the note was last updated.
         private Date updatedAt;
+        // The column name is given explicitly because it is used in the index above,
+        // and ColumnDefault gives the existing rows a value when the column is added.
+        @Column(name = "change_sequence")
+        @ColumnDefault("0")
+        // This field holds the change sequence of the last create or update of the
+        // note, which is taken from the NoteSyncState of the user.
+        private long changeSequence;
         // This annotation defines a many-to-one relationship between the Note and User
-        // entities. FetchType.EAGER means that the related entity will be fetched
-        // immediately. optional = false means that a non-null relationship must always
-        // exist.
-        @ManyToOne(fetch = FetchType.EAGER, optional = false)
+        // entities. FetchType.LAZY means that the related user is only fetched when it
+        // is used, so loading a note does not join the users and roles tables just to
+        // know the user's id (which is available from the user_id column without
+        // loading the user). optional = false means that a non-null relationship must
+        // always exist.
+        @ManyToOne(fetch = FetchType.LAZY, optional = false)
         @JoinColumn(
                         // This specifies the name of the column for joining an entity association or
                         // element collection.
@@ -76,6 +140,36 @@ public class Note {
         // This field holds the user associated with the note.
         private Users user;
 
+        // This method returns the content of the note. It loads the content from the
+        // note_content table if it was not loaded yet
+        public String getContent() {
+                return noteContent != null ? noteContent.getContent() : null;
+        }
+
+        // This method sets the content of the note and updates its preview and length
+        public void setContent(String content) {
+                if (noteContent == null) {
+                        noteContent = new NoteContent(this, content);
+                } else {
+                        noteContent.setContent(content);
+                }
+                preview = preview(content);
+                contentLength = content != null ? content.codePointCount(0, content.length()) : 0;
+        }
+
+        // This method returns the first PREVIEW_LENGTH characters of the content
+        // without cutting a character which is made of two UTF-16 code units in half
+        public static String preview(String content) {
+                if (content == null || content.length() <= PREVIEW_LENGTH) {
+                        return content;
+                }
+                int end = PREVIEW_LENGTH;
+                if (Character.isLowSurrogate(content.charAt(end))) {
+                        end--;
+                }
+                return content.substring(0, end);
+        }
+
 }
 
 // Serialization in JSON involves converting Java objects into JSON
@@ -0,0 +1,73 @@
+package com.pavansingerreddy.note.entity;
+
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.MapsId;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Entity annotation tells Hibernate to make a table out of this class.
+@Entity
+// Table annotation gives the name of the table which holds the contents of the
+// notes
+@Table(name = "note_content")
+// Getter annotation from Lombok generates getters for all fields.
+@Getter
+// Setter annotation from Lombok generates setters for all fields.
+@Setter
+// NoArgsConstructor annotation from Lombok generates a no-args constructor.
+@NoArgsConstructor
+// Cache annotation stores the contents in the "note-contents" region of the
+// Hibernate second level cache like the notes are stored in the "notes" region
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "note-contents")
+// BatchSize annotation makes Hibernate load the contents of up to 50 notes with
+// one query when the content of a note which was loaded without it is used, for
+// example for the snippets of the search results
+@BatchSize(size = 50)
+// NoteContent holds the content of a note in its own table. The content is the
+// large part of a note, so keeping it out of the note table means that listing
+// the notes, counting them and checking who owns a note only read the narrow
+// rows of the note table. The row has the same id as its note
+public class NoteContent {
+
+        // This annotation specifies the primary key of an entity. The id is not
+        // generated, it is copied from the note by @MapsId
+        @Id
+        @Column(name = "note_id")
+        // This field holds the id of the note of this content.
+        private Long noteId;
+        // This annotation defines the one-to-one relationship to the note whose id is
+        // also the id of this content. MapsId makes the note_id column both the primary
+        // key and the foreign key, and OnDelete makes the database delete the content
+        // when its note is deleted (for example when a user and its notes are deleted)
+        @MapsId
+        @OneToOne(fetch = FetchType.LAZY, optional = false)
+        @JoinColumn(name = "note_id")
+        @OnDelete(action = OnDeleteAction.CASCADE)
+        // This field holds the note of this content.
+        private Note note;
+        // This annotation is used to specify the mapped column for a persistent
+        // property or field.
+        @Column(columnDefinition = "TEXT")
+        // This field holds the content of the note.
+        private String content;
+
+        // This constructor creates the content of the given note
+        public NoteContent(Note note, String content) {
+                this.note = note;
+                this.content = content;
+        }
+
+}
@@ -0,0 +1,65 @@
+package com.pavansingerreddy.note.entity;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.MapsId;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Entity annotation tells Hibernate to make a table out of this class.
+@Entity
+// Table annotation gives the name of the table which holds the sync state of the
+// users
+@Table(name = "note_sync_state")
+// Getter annotation from Lombok generates getters for all fields.
+@Getter
+// Setter annotation from Lombok generates setters for all fields.
+@Setter
+// NoArgsConstructor annotation from Lombok generates a no-args constructor.
+@NoArgsConstructor
+// NoteSyncState holds the change sequence of the notes of a user. Every create,
+// update and delete of a note of the user takes the next change sequence, so the
+// clients can ask for the changes after the last change sequence they have seen.
+// It is kept out of the users table so that the updates of the user (which write
+// all the columns of the row) never overwrite the counter with an old value
+public class NoteSyncState {
+
+        // This annotation specifies the primary key of an entity. The id is not
+        // generated, it is copied from the user by @MapsId
+        @Id
+        @Column(name = "user_id")
+        // This field holds the id of the user of this sync state.
+        private Long userId;
+        // This annotation defines the one-to-one relationship to the user whose id is
+        // also the id of this sync state. OnDelete makes the database delete the sync
+        // state when its user is deleted
+        @MapsId
+        @OneToOne(fetch = FetchType.LAZY, optional = false)
+        @JoinColumn(name = "user_id")
+        @OnDelete(action = OnDeleteAction.CASCADE)
+        // This field holds the user of this sync state.
+        private Users user;
+        // This field holds the change sequence of the last change of the notes of the
+        // user.
+        private long lastChangeSequence;
+        // This field holds the highest change sequence of the tombstones of the user
+        // which were deleted by the NoteTombstoneCleanup. A client whose cursor is
+        // before it may have missed a deleted note so it has to sync all the notes
+        // again.
+        private long purgedChangeSequence;
+
+        // This constructor creates the sync state of the given user
+        public NoteSyncState(Users user) {
+                this.user = user;
+        }
+
+}
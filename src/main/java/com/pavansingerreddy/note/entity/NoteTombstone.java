@@ -0,0 +1,63 @@
+package com.pavansingerreddy.note.entity;
+
+import java.util.Date;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Entity annotation tells Hibernate to make a table out of this class.
+@Entity
+// Table annotation gives the name of the table and defines an index on (user_id,
+// change_sequence, note_id) which matches the order in which the changes of a
+// user are read, so the query for the changes after a cursor seeks directly to
+// the position of the cursor
+@Table(name = "note_tombstone", indexes = @Index(name = "idx_note_tombstone_user_change_sequence_note_id", columnList = "user_id, change_sequence, note_id"))
+// Getter annotation from Lombok generates getters for all fields.
+@Getter
+// Setter annotation from Lombok generates setters for all fields.
+@Setter
+// NoArgsConstructor annotation from Lombok generates a no-args constructor.
+@NoArgsConstructor
+// AllArgsConstructor annotation from Lombok generates a constructor with one
+// parameter for each field in your class.
+@AllArgsConstructor
+// NoteTombstone records that a note was deleted so that the clients which sync
+// the changes of the notes also learn about the deleted notes. The tombstones are
+// deleted by the NoteTombstoneCleanup after the retention days
+public class NoteTombstone {
+
+        // This annotation specifies the primary key of an entity. It is the id of the
+        // deleted note, the ids of the notes are never used again
+        @Id
+        @Column(name = "note_id")
+        // This field holds the id of the deleted note.
+        private long noteId;
+        // This annotation defines the many-to-one relationship to the user of the
+        // deleted note. OnDelete makes the database delete the tombstones when their
+        // user is deleted
+        @ManyToOne(fetch = FetchType.LAZY, optional = false)
+        @JoinColumn(name = "user_id")
+        @OnDelete(action = OnDeleteAction.CASCADE)
+        // This field holds the user of the deleted note.
+        private Users user;
+        // The column name is given explicitly because it is used in the index above.
+        @Column(name = "change_sequence")
+        // This field holds the change sequence of the delete.
+        private long changeSequence;
+        // This field holds the time at which the note was deleted.
+        private Date deletedAt;
+
+}
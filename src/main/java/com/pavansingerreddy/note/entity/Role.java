@@ -1,10 +1,14 @@
 package com.pavansingerreddy.note.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
 import org.springframework.security.core.GrantedAuthority;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -12,7 +16,6 @@ import jakarta.persistence.Id;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
-import lombok.Setter;
 
 // Entity annotation tells Hibernate to make a table out of this class.
 @Entity
@@ -24,8 +27,14 @@ import lombok.Setter;
 @AllArgsConstructor
 // Getter annotation from Lombok generates getters for all fields.
 @Getter
-// Setter annotation from Lombok generates setters for all fields.
-@Setter
+// Immutable annotation tells Hibernate that a role is never changed after it is
+// created. There is only one row for each role name which is shared by all the
+// users (see RoleCatalog) so it must not be changed through a user
+@Immutable
+// Cache annotation stores the roles in the "roles" region of the Hibernate
+// second level cache as they are read with every user. READ_ONLY is enough as
+// the roles are immutable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "roles")
 @JsonIdentityInfo(
         // This annotation is used to handle serialization and deserialization of
         // related entities. It helps in handling infinite recursion problems by
@@ -45,6 +54,9 @@ public class Role implements GrantedAuthority {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     // roleId field holds the role ID.
     private long roleId;
+    // Column annotation makes the name of the role unique so that there is only
+    // one row for each role name
+    @Column(unique = true, nullable = false)
     // name field holds the name of the role.
     private String name;
 
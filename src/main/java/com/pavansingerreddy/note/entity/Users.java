@@ -1,13 +1,15 @@
 package com.pavansingerreddy.note.entity;
 
-import java.time.Duration;
 import java.time.Instant;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ThreadLocalRandom;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
@@ -50,6 +52,14 @@ import lombok.ToString;
 @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "userId")
 // ToString annotation from Lombok generates a toString method.
 @ToString
+// Cache annotation stores the users in the "users" region of the Hibernate
+// second level cache so that loading a user by its id (for example on every
+// login) does not read the users table again while the user is not changed.
+// READ_WRITE makes Hibernate update the cached user when it is changed
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
+// NaturalIdCache annotation caches the mapping from the user's email to the
+// user's id so that the users can also be loaded by their email from the cache
+@NaturalIdCache(region = "users-by-email")
 // This class implements the UserDetails interface, which means it can be used
 // to represent a user in the Spring Security framework and it is used by the
 // UserDetailsService to load the user details for the Authentication provider.
@@ -69,14 +79,18 @@ public class Users implements UserDetails {
     // property or field. The unique attribute indicates that the column values
     // should be unique.
     @Column(unique = true)
+    // NaturalId annotation marks the email as the natural identifier of the user
+    // so that the user can be looked up by the email through the natural id cache.
+    // It is mutable because the user can change the email
+    @NaturalId(mutable = true)
     // email field holds the email.
     private String email;
     // ManyToMany annotation defines a many-to-many relationship between the User
     // and Role entities. FetchType.EAGER means that the related entities will be
-    // fetched immediately. CascadeType.ALL means that all operations (persist,
-    // remove, refresh, merge, detach) that are applied to the User entity will also
-    // be applied to the Role entity.
-    @ManyToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    // fetched immediately. There is no cascade because the roles are shared by all
+    // the users (see RoleCatalog), so saving or deleting a user only writes or
+    // deletes the rows of the join table and never the roles themselves.
+    @ManyToMany(fetch = FetchType.EAGER)
     // JoinTable annotation specifies the join table, join columns and inverse join
     // columns of a many-to-many relationship.joinColumn's name attribute refers to
     // the name of the column in the join table which refers to this current tables
@@ -85,15 +99,14 @@ public class Users implements UserDetails {
     // join table which refers to the Role tables primary key which is annotated
     // with @Id annotation.
     @JoinTable(name = "User_Role", joinColumns = @JoinColumn(name = "user_id"), inverseJoinColumns = @JoinColumn(name = "role_id"))
+    // Cache annotation stores the ids of the roles of each user in the
+    // "user-roles" region so that the roles of a cached user are also read from
+    // the cache
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user-roles")
     // roles field holds the roles associated with the user.
     private Set<Role> roles;
     // Time which reflects when the user is created
     private Date userCreatedAtTime;
-    // when we create a next new user we can check for this time and send email
-    // based on this time for verifying the new user we don't get blocked by our
-    // email provider for spam
-    @Column(name = "new_user_can_be_created_at_time")
-    private Date newUserCanBeCreatedAtTime;
     // mailNoToUseForSendingEmail contains the email number from the email service
     // providers in the application.yml which is used to verify this user
     private int mailNoToUseForSendingEmail;
@@ -156,28 +169,9 @@ public class Users implements UserDetails {
         return this.enabled;
     }
 
-    // This method assigns the current time to the userCreatedAtTime variable and
-    // then assigns a random time which is between 5 to 10 minutes ahead of the
-    // current time to the newUserCanBeCreatedAtTime so that when we create a next
-    // new user we can check for this time and send email based on this time for
-    // verifying the new user we don't get blocked by our email provider for spam
-    public void updateUserCreatedAtTimeAndNewUserCanBeCreatedAtTime() {
-        // assigning the userCreatedAtTime variable the current time
+    // This method assigns the current time to the userCreatedAtTime variable
+    public void updateUserCreatedAtTime() {
         this.userCreatedAtTime = Date.from(Instant.now());
-        // generating a random number between 5(inclusive) to 11(exclusive) so that we
-        // may get the number from 5-10 which we assign to the randomMinutes variable
-        int randomMinutes = ThreadLocalRandom.current().nextInt(5, 11);
-        // generating a random number between 0(inclusive) to 60(exclusive) so that we
-        // may get the number from 0-59 which we assign to the randomSeconds variable
-        int randomSeconds = ThreadLocalRandom.current().nextInt(0, 60);
-        // we are getting the minutes from integer variable
-        Duration minutesToAdd = Duration.ofMinutes(randomMinutes);
-        // we are adding our newly generated minutes and seconds and assigning the newly
-        // created date object to the newUserCanBeCreatedAtTime so that when we are
-        // creating the next new user we can check this time and decide when the new
-        // user can be created so that when we are sending the email when we create a
-        // next new user we don't banned by our email service provider for spam
-        this.newUserCanBeCreatedAtTime = Date.from(Instant.now().plus(minutesToAdd).plusSeconds(randomSeconds));
     }
 
 }
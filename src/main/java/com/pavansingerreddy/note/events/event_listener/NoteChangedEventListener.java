@@ -0,0 +1,32 @@
+package com.pavansingerreddy.note.events.event_listener;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.pavansingerreddy.note.events.event_publisher.NoteChangedEvent;
+import com.pavansingerreddy.note.services.NoteChangeBroadcaster;
+
+// making it as component so that spring can recognize it as the component and create a bean for it
+@Component
+// This listener pushes the changes of the notes to the connected devices of
+// their user
+public class NoteChangedEventListener {
+
+    // getting the broadcaster which holds the connected devices of the users
+    @Autowired
+    private NoteChangeBroadcaster noteChangeBroadcaster;
+
+    // TransactionalEventListener annotation runs this method only after the
+    // transaction in which the event was published commits, so the devices never
+    // hear about a change which was rolled back and a device which reads the
+    // changes when it gets the event already sees the change. It only puts the
+    // event into the buffers of the connections, the events are written by the
+    // threads of the noteEventsExecutor so the request is not slowed down by the
+    // devices
+    @TransactionalEventListener
+    public void onNoteChanged(NoteChangedEvent event) {
+        noteChangeBroadcaster.publish(event.getUserId(), event.getChange());
+    }
+
+}
@@ -4,12 +4,12 @@ import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationListener;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.pavansingerreddy.note.entity.Users;
 import com.pavansingerreddy.note.events.event_publisher.PasswordResetEvent;
-import com.pavansingerreddy.note.services.EmailService;
+import com.pavansingerreddy.note.services.EmailOutboxService;
 import com.pavansingerreddy.note.services.UserService;
 
 // making it as component so that spring can recognize it as the component and create a bean for it
@@ -23,16 +23,17 @@ public class PasswordResetEventListener implements ApplicationListener<PasswordR
     @Autowired
     private UserService userService;
 
-    // getting the email service object so that we can send email to the user for
-    // resetting the password
+    // getting the email outbox service object so that we can add the email for
+    // resetting the password to the outbox
     @Autowired
-    private EmailService emailService;
+    private EmailOutboxService emailOutboxService;
 
-    // making the onApplicationEvent function Async so that it doesn't interfere
-    // with the main thread and it operates on the different thread from the main
-    // api thread on which the request and response is happening so that application
-    // feels snappy
-    @Async
+    // adding transactional annotation so that the password reset token and the
+    // email which contains it are saved in the same transaction. Either both are
+    // saved or none of them. This method does not send the email itself (the
+    // EmailOutboxDispatcher sends it in the background) so it only takes the time
+    // of two inserts and it no longer has to be Async
+    @Transactional
     // overriding the onApplicationEvent which get's executed when an event get's
     // triggered or published
     @Override
@@ -61,11 +62,12 @@ public class PasswordResetEventListener implements ApplicationListener<PasswordR
         String messageBody = "click The link to reset your account password : " + url;
         // Message subject is the title of the email which we send
         String messageSubject = "Password Reset Email";
-        // using the emailService.sendEmail() custom method to send the email to the
-        // user by using the user's email with the message subject and message body and
-        // getMailNoToUseForSendingEmail() contains the mail number from our mail
-        // providers to use for sending the email for resetting the password
-        emailService.sendEmail(user.getEmail(), messageSubject, messageBody, event.getMailNoToUseForSendingEmail());
+        // adding the email to the outbox with the user's email and the message subject
+        // and message body and getMailNoToUseForSendingEmail() contains the mail number
+        // from our mail providers to use for sending the email for resetting the
+        // password
+        emailOutboxService.enqueue(user.getEmail(), messageSubject, messageBody,
+                event.getMailNoToUseForSendingEmail());
 
     }
 
@@ -4,14 +4,13 @@ import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationListener;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.pavansingerreddy.note.entity.Users;
 import com.pavansingerreddy.note.events.event_publisher.RegistrationCompleteEvent;
 import com.pavansingerreddy.note.exception.UserNotFoundException;
-import com.pavansingerreddy.note.services.EmailService;
+import com.pavansingerreddy.note.services.EmailOutboxService;
 import com.pavansingerreddy.note.services.UserService;
 
 // declaring it as a component so spring can create beans of this custom filter
@@ -27,15 +26,12 @@ public class RegistrationCompleteEventListener implements ApplicationListener<Re
     private UserService userService;
 
     @Autowired
-    private EmailService emailService;
+    private EmailOutboxService emailOutboxService;
 
-    // The @Async annotation in Spring is used to indicate that a method should be
-    // executed in a separate thread, i.e., asynchronously. When a method is
-    // annotated with @Async, Spring will execute it in a separate thread and the
-    // caller can continue with other tasks without waiting for the completion of
-    // the called method. NOTE : To enable the use of @Async in a Spring
-    // application, we need to add @EnableAsync in one of our configuration classes.
-    @Async
+    // This listener is not Async anymore because it does not send the email. It
+    // only saves the verification token and adds the email to the outbox which is
+    // sent in the background by the EmailOutboxDispatcher, so the request does not
+    // wait for the SMTP server.
     // adding transactional annotation so that all the transactions in this event
     // happen in a single hibernate session and not on different hibernate session
     // which may cause error In the context of Hibernate, a transaction is
@@ -46,7 +42,8 @@ public class RegistrationCompleteEventListener implements ApplicationListener<Re
     // onApplicationEvent method with @Transactional, we are ensuring that the
     // fetching of the User and the saving of the VerificationToken both happen
     // within the same Hibernate Session. This can help avoid the detached entity
-    // passed to persist error.
+    // passed to persist error. It also makes sure that the verification token and
+    // the email which contains it are saved together or not at all.
     @Transactional
     @Override
     // here we are Overriding the onApplicationEvent method from our
@@ -56,12 +53,11 @@ public class RegistrationCompleteEventListener implements ApplicationListener<Re
     public void onApplicationEvent(RegistrationCompleteEvent event) {
         // creating the verification token for the user
         try {
-            // here we are fetching the user again because the hibernate session is
-            // discontinued in this event as we are using async annotation which creates a
-            // separate thread so there will be new hibernate session so even though we have
-            // the previous user object the hibernate session is discontinued and we get
-            // the error as "detached entity passed to persist" this is the reason we are
-            // fetching the user details again in this new hibernate session
+            // here we are fetching the user again because the hibernate session in which
+            // the user was created is already closed so even though we have the previous
+            // user object we may get the error as "detached entity passed to persist"
+            // this is the reason we are fetching the user details again in this new
+            // hibernate session
             Users user = userService.getUserDetailsByEmail(event.getUser().getEmail());
             // we are creating a random uuid string so that it can be used as a verification
             // token
@@ -84,11 +80,12 @@ public class RegistrationCompleteEventListener implements ApplicationListener<Re
             // This is the heading of the email or subject which we see first when we
             // receive an email
             String messageSubject = "Account verification email";
-            // we are using our custom emailService class to send the email with the user's
-            // email address and the message subject and the message body and also with the
-            // mailNoToUse variable as it contains the mail number from our mail providers
-            // to use for sending the email for verification
-            emailService.sendEmail(user.getEmail(), messageSubject, messageBody, event.getMailNoToUseForSendingEmail());
+            // we are adding the email to the outbox with the user's email address and the
+            // message subject and the message body and also with the mailNoToUse variable
+            // as it contains the mail number from our mail providers to use for sending
+            // the email for verification
+            emailOutboxService.enqueue(user.getEmail(), messageSubject, messageBody,
+                    event.getMailNoToUseForSendingEmail());
         } catch (UserNotFoundException e) {
             // if any error occurs we are printing the stackTrace
             e.printStackTrace();
@@ -0,0 +1,29 @@
+package com.pavansingerreddy.note.events.event_publisher;
+
+import org.springframework.context.ApplicationEvent;
+
+import com.pavansingerreddy.note.dto.NoteChangeEventDto;
+
+import lombok.Getter;
+
+// Getter annotation from Lombok generates getters for all fields.
+@Getter
+// NoteChangedEvent is published by the NoteServiceImplementation for every note
+// which is created, updated or deleted. This event extends Spring's
+// ApplicationEvent class so it can be published and listened to within the
+// application.
+public class NoteChangedEvent extends ApplicationEvent {
+
+    private final long userId;
+    private final NoteChangeEventDto change;
+
+    // constructor which is used to initialize the id of the user of the note and
+    // the change when the event gets created. The source is the object which
+    // published the event
+    public NoteChangedEvent(Object source, long userId, NoteChangeEventDto change) {
+        super(source);
+        this.userId = userId;
+        this.change = change;
+    }
+
+}
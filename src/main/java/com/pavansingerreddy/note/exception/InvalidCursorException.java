@@ -0,0 +1,9 @@
+package com.pavansingerreddy.note.exception;
+
+// This exception is thrown when the cursor sent by the client is not a cursor
+// which was given by our api
+public class InvalidCursorException extends Exception {
+    public InvalidCursorException(String message){
+        super(message);
+    }
+}
@@ -0,0 +1,22 @@
+package com.pavansingerreddy.note.model;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+// NoteBatchModel contains the operations of a batch request which are applied in
+// the given order in a single transaction
+public class NoteBatchModel {
+    // @NotEmpty checks that the list is not null and contains at least one
+    // operation and @Valid validates each operation of the list
+    @NotEmpty(message = "Operations must not be empty")
+    @Valid
+    private List<NoteOperationModel> operations;
+}
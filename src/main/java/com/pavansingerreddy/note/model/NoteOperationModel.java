@@ -0,0 +1,32 @@
+package com.pavansingerreddy.note.model;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+// NoteOperationModel is a single operation of a batch request. A CREATE needs the
+// title and the content, an UPDATE needs the noteId and the title or the content
+// which should be changed and a DELETE only needs the noteId. The fields which
+// an operation needs are checked when the batch is applied so that an invalid
+// operation only fails itself and not the whole batch
+public class NoteOperationModel {
+
+    // the kinds of operations of a batch
+    public enum Type {
+        CREATE, UPDATE, DELETE
+    }
+
+    // @NotNull: This annotation is used to specify that a field must not be null.
+    @NotNull(message = "Operation type must not be null")
+    private Type type;
+    // id of the note which is updated or deleted
+    private Long noteId;
+    // title of the created note or the new title of the updated note
+    private String title;
+    // content of the created note or the new content of the updated note
+    private String content;
+}
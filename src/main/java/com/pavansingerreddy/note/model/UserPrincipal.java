@@ -0,0 +1,40 @@
+package com.pavansingerreddy.note.model;
+
+import java.io.Serializable;
+import java.security.Principal;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Getter annotation from Lombok generates getters for all fields.
+@Getter
+// AllArgsConstructor annotation from Lombok generates a constructor with one
+// parameter for each field in your class.
+@AllArgsConstructor
+// UserPrincipal is the principal of the authenticated user which is stored in
+// the security context. It contains the user's id from the jwt along with the
+// email so that the notes api's can query the notes of the user directly
+// without first loading the user by the email. As it implements Principal the
+// getName method of the Authentication still returns the user's email
+public class UserPrincipal implements Principal, Serializable {
+
+    // id of the user. It is null for the jwt's which were issued before the user id
+    // was added to the jwt and in that case the user is looked up by the email
+    private final Long userId;
+    // email of the user which is the subject of the jwt
+    private final String email;
+
+    // This method returns the email of the user as the name of the principal
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    // returning the email so that the principal is shown as the user's email in
+    // logs just like before when the principal was the email string
+    @Override
+    public String toString() {
+        return email;
+    }
+
+}
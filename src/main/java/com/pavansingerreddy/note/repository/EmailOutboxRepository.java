@@ -0,0 +1,48 @@
+package com.pavansingerreddy.note.repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.pavansingerreddy.note.entity.EmailOutbox;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+// The @Repository annotation tells Spring that this interface is a Repository.
+// Repositories in Spring are used for data access. They can fetch, save, update, and delete data.
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    @Query("SELECT e FROM EmailOutbox e WHERE e.status IN :statuses AND e.nextAttemptAt <= :now ORDER BY e.nextAttemptAt")
+    // The PESSIMISTIC_WRITE lock adds FOR UPDATE to the query so that two
+    // dispatchers never claim the same email, and the lock timeout of -2 is
+    // Hibernate's value for SKIP LOCKED so that a dispatcher skips the emails which
+    // are locked by another dispatcher instead of waiting for them. On databases
+    // without SKIP LOCKED the dispatchers simply wait for each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    // This method declaration is for finding and locking the emails with the given
+    // statuses which can be sent now. The Pageable parameter limits the number of
+    // emails which are claimed at once
+    List<EmailOutbox> findClaimable(@Param("statuses") Collection<EmailOutbox.Status> statuses,
+            @Param("now") Date now, Pageable pageable);
+
+    // This query deletes the emails with the given status which were created
+    // before the given time and returns the number of deleted emails
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM EmailOutbox e WHERE e.status = :status AND e.createdAt < :before")
+    int deleteByStatusCreatedBefore(@Param("status") EmailOutbox.Status status, @Param("before") Date before);
+
+}
@@ -0,0 +1,28 @@
+package com.pavansingerreddy.note.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.pavansingerreddy.note.entity.MailSenderState;
+
+import jakarta.persistence.LockModeType;
+
+// The @Repository annotation tells Spring that this interface is a Repository.
+// Repositories in Spring are used for data access. They can fetch, save, update, and delete data.
+@Repository
+public interface MailSenderStateRepository extends JpaRepository<MailSenderState, Integer> {
+
+    @Query("SELECT s FROM MailSenderState s WHERE s.mailNo = :mailNo")
+    // The PESSIMISTIC_WRITE lock adds FOR UPDATE to the query so that the requests
+    // and the instances which take tokens of the same sender wait for each other
+    // until the transaction which holds the lock commits
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    // This method declaration is for finding and locking the row of the sender
+    Optional<MailSenderState> findForUpdate(@Param("mailNo") Integer mailNo);
+
+}
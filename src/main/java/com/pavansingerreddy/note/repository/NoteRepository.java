@@ -1,17 +1,25 @@
 package com.pavansingerreddy.note.repository;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.pavansingerreddy.note.entity.Note;
 
+import jakarta.persistence.QueryHint;
+
 // @Repository is a Spring annotation that marks this interface as a Repository.  Spring will automatically create an implementation of this interface. The @Repository annotation is a way to tell Spring Data JPA to handle all the database operations for a certain type of data (like Note), so you can focus on writing the rest of your application
 @Repository
 public interface NoteRepository extends JpaRepository<Note, Long> {
@@ -19,48 +27,102 @@ public interface NoteRepository extends JpaRepository<Note, Long> {
     // Optional that contains the Note if found, or is empty if not found.
     Optional<Note> findById(Long noteId);
 
+    // This method declaration is for finding a Note by its ID only if it belongs
+    // to the given user. The ownership is checked by the database in the same
+    // query (WHERE note_id = ? AND user_id = ?) so we don't have to load the user
+    // to compare the user ids. It returns an empty Optional if the note does not
+    // exist or belongs to another user.
+    Optional<Note> findByNoteIdAndUser_UserId(Long noteId, Long userId);
+
     // This method declaration is for finding a page of Note entities associated
     // with a specific user ID. The Pageable parameter specifies the details of the
     // page request, such as the page number and size.
-    Page<Note> findByUser_UserId(Long userId, Pageable pageable);
-
-    @Query("SELECT n FROM Note n WHERE n.user.userId = :userId AND (LOWER(n.title) LIKE LOWER(CONCAT('%', :term, '%')) OR LOWER(n.content) LIKE LOWER(CONCAT('%', :term, '%')))")
-    // This method declaration is for searching for Note entities associated with a
-    // specific user ID and a search term. The @Query annotation specifies the JPQL
-    // query to be executed. The @Param annotations are used to bind the method
-    // parameters to the query parameters. List<Note> search(@Param("userId") Long
-    // userId, @Param("term") String term);
-    List<Note> search(@Param("userId") Long userId, @Param("term") String term);
-}
+    @Query(value = "SELECT n FROM Note n JOIN FETCH n.noteContent WHERE n.user.userId = :userId",
+            countQuery = "SELECT COUNT(n) FROM Note n WHERE n.user.userId = :userId")
+    // The content of the notes is fetched with the notes in the same query and the
+    // count query only reads the note table.
+    Page<Note> findByUser_UserId(@Param("userId") Long userId, Pageable pageable);
+
+    // This method declaration is for finding all the Note entities associated with
+    // a specific user ID. It is used to build the in memory search index of the
+    // user so the content of the notes is fetched with the notes.
+    @Query("SELECT n FROM Note n JOIN FETCH n.noteContent WHERE n.user.userId = :userId")
+    List<Note> findByUser_UserId(@Param("userId") Long userId);
 
-// NOTE: here is a break down of the above query : @Query("SELECT n FROM Note n
-// WHERE n.user.userId = :userId AND (LOWER(n.title) LIKE LOWER(CONCAT('%',
-// :term, '%')) OR LOWER(n.content) LIKE LOWER(CONCAT('%', :term, '%')))")
+    @Query("SELECT n FROM Note n JOIN FETCH n.noteContent WHERE n.user.userId = :userId")
+    // The fetch size hint tells the JDBC driver to fetch the rows from the database
+    // in small batches instead of loading the whole result in to memory, and the
+    // read only hint tells Hibernate not to keep a copy of each note for dirty
+    // checking
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    // This method declaration is for streaming all the Note entities associated
+    // with a specific user ID one by one as the rows arrive from the database. The
+    // Stream must be consumed inside a transaction and closed after using it.
+    Stream<Note> streamByUserId(@Param("userId") Long userId);
 
-// explanation of the query :
+    @Query("SELECT n FROM Note n JOIN FETCH n.noteContent WHERE n.user.userId = :userId ORDER BY n.updatedAt DESC, n.noteId DESC")
+    // This method declaration is for finding the first page of the cursor based
+    // pagination. The Pageable parameter is only used for limiting the number of
+    // rows, and as the method returns a List Spring Data does not run a count query
+    List<Note> findFirstKeysetPage(@Param("userId") Long userId, Pageable pageable);
 
-// SELECT n FROM Note n: This part of the query is selecting all the Note
-// entities and referring to them as n in the rest of the query.
+    @Query("SELECT n FROM Note n JOIN FETCH n.noteContent WHERE n.user.userId = :userId AND (n.updatedAt < :updatedAt OR (n.updatedAt = :updatedAt AND n.noteId < :noteId)) ORDER BY n.updatedAt DESC, n.noteId DESC")
+    // This method declaration is for finding the page of notes which comes after
+    // the note given by the cursor (updatedAt, noteId). The condition seeks to the
+    // cursor position in the (user_id, updated_at, note_id) index so every page
+    // costs the same no matter how deep the client has scrolled
+    List<Note> findKeysetPageAfter(@Param("userId") Long userId, @Param("updatedAt") Date updatedAt,
+            @Param("noteId") Long noteId, Pageable pageable);
 
-// WHERE n.user.userId = :userId: This is a condition that filters the notes
-// based on their associated user. It only selects the notes where the userId
-// field of the user field of the Note entity matches the userId parameter
-// provided in the method call.
+    @Query("SELECT n FROM Note n JOIN FETCH n.noteContent WHERE n.user.userId = :userId AND (n.changeSequence > :changeSequence OR (n.changeSequence = :changeSequence AND n.noteId > :noteId)) ORDER BY n.changeSequence, n.noteId")
+    // This method declaration is for finding the notes of a user which were
+    // created or updated after the change given by the cursor (changeSequence,
+    // noteId), in the order of the changes. The condition seeks to the cursor
+    // position in the (user_id, change_sequence, note_id) index so a sync only reads
+    // the notes which changed since the previous sync
+    List<Note> findChangedAfter(@Param("userId") Long userId, @Param("changeSequence") long changeSequence,
+            @Param("noteId") long noteId, Pageable pageable);
 
-// LOWER(n.title) LIKE LOWER(CONCAT('%', :term, '%')): This condition checks if
-// the title of the note contains the search :term. The LOWER function is used
-// to make the search case-insensitive. The CONCAT function is used to add ‘%’
-// before and after the search term, which allows it to match any part of the
-// title.
+    @Query("SELECT n FROM Note n LEFT JOIN FETCH n.noteContent WHERE n.user.userId = :userId AND n.noteId IN :noteIds")
+    // This method declaration is for finding the notes with the given ids which
+    // belong to a specific user, together with their content. The notes of other
+    // users are not returned so a single query checks the owner of all the notes
+    // of a batch request
+    List<Note> findAllOfUserByIds(@Param("userId") Long userId, @Param("noteIds") Collection<Long> noteIds);
 
-// LOWER(n.content) LIKE LOWER(CONCAT('%', :term, '%')): This condition is
-// similar to the previous one, but it checks the content of the note instead of
-// the title.
+    // the select clause of the queries which return NoteSummary projections. They
+    // only read the note table which has the preview of the content, and the
+    // aliases are the property names of the NoteSummary
+    String SUMMARY_SELECT = "SELECT n.noteId AS noteId, n.title AS title, n.preview AS preview, n.updatedAt AS updatedAt FROM Note n ";
 
-// AND: This is a logical operator that requires both conditions on its sides to
-// be true. So a Note entity will only be selected if both the userId matches
-// and the title or content contains the search term.
+    @Query(SUMMARY_SELECT + "WHERE n.user.userId = :userId ORDER BY n.updatedAt DESC, n.noteId DESC")
+    // This method declaration is for finding a page of the summaries of the notes of
+    // a specific user, the latest updated note first. It returns a List so the
+    // notes are counted separately with countByUser_UserId
+    List<NoteSummary> findSummariesByUserId(@Param("userId") Long userId, Pageable pageable);
 
-// So, in summary, this query selects all notes from a specific user where the
-// title or content of the note contains a certain search term. The search is
-// case-insensitive.
\ No newline at end of file
+    // This method declaration is for counting the notes of a specific user
+    long countByUser_UserId(Long userId);
+
+    @Query(SUMMARY_SELECT + "WHERE n.user.userId = :userId")
+    // the same hints as streamByUserId
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    // This method declaration is for streaming the summaries of all the notes of a
+    // specific user one by one as the rows arrive from the database
+    Stream<NoteSummary> streamSummariesByUserId(@Param("userId") Long userId);
+
+    @Query(SUMMARY_SELECT + "WHERE n.user.userId = :userId ORDER BY n.updatedAt DESC, n.noteId DESC")
+    // This method declaration is the summary version of findFirstKeysetPage
+    List<NoteSummary> findFirstKeysetSummaryPage(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE n.user.userId = :userId AND (n.updatedAt < :updatedAt OR (n.updatedAt = :updatedAt AND n.noteId < :noteId)) ORDER BY n.updatedAt DESC, n.noteId DESC")
+    // This method declaration is the summary version of findKeysetPageAfter
+    List<NoteSummary> findKeysetSummaryPageAfter(@Param("userId") Long userId, @Param("updatedAt") Date updatedAt,
+            @Param("noteId") Long noteId, Pageable pageable);
+}
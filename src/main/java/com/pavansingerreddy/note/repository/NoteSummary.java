@@ -0,0 +1,20 @@
+package com.pavansingerreddy.note.repository;
+
+import java.util.Date;
+
+// NoteSummary is a Spring Data projection of a note which only contains what the
+// list views show. The queries of the NoteRepository which return it select these
+// columns directly, so the content is only read up to the preview length and no
+// Note entity is created for the rows
+public interface NoteSummary {
+
+    Long getNoteId();
+
+    String getTitle();
+
+    // the first characters of the content of the note
+    String getPreview();
+
+    Date getUpdatedAt();
+
+}
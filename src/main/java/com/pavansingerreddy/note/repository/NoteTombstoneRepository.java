@@ -0,0 +1,41 @@
+package com.pavansingerreddy.note.repository;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.pavansingerreddy.note.entity.NoteTombstone;
+
+// The @Repository annotation tells Spring that this interface is a Repository.
+// Repositories in Spring are used for data access. They can fetch, save, update, and delete data.
+@Repository
+public interface NoteTombstoneRepository extends JpaRepository<NoteTombstone, Long> {
+
+    @Query("SELECT t FROM NoteTombstone t WHERE t.user.userId = :userId AND (t.changeSequence > :changeSequence OR (t.changeSequence = :changeSequence AND t.noteId > :noteId)) ORDER BY t.changeSequence, t.noteId")
+    // This method declaration is for finding the tombstones of the notes of a user
+    // which were deleted after the change given by the cursor (changeSequence,
+    // noteId), in the order of the changes
+    List<NoteTombstone> findChangedAfter(@Param("userId") Long userId, @Param("changeSequence") long changeSequence,
+            @Param("noteId") long noteId, Pageable pageable);
+
+    // This query stores in the sync state of every user the highest change
+    // sequence of the tombstones which are deleted before the given time, so that
+    // the clients whose cursor is before it are told to sync all the notes again.
+    // It must run in the same transaction as deleteDeletedBefore
+    @Modifying
+    @Query("UPDATE NoteSyncState s SET s.purgedChangeSequence = (SELECT MAX(t.changeSequence) FROM NoteTombstone t WHERE t.user.userId = s.userId AND t.deletedAt < :before) WHERE EXISTS (SELECT t.noteId FROM NoteTombstone t WHERE t.user.userId = s.userId AND t.deletedAt < :before)")
+    int markPurgedBefore(@Param("before") Date before);
+
+    // This query deletes the tombstones of the notes which were deleted before the
+    // given time and returns the number of deleted tombstones
+    @Modifying
+    @Query("DELETE FROM NoteTombstone t WHERE t.deletedAt < :before")
+    int deleteDeletedBefore(@Param("before") Date before);
+
+}
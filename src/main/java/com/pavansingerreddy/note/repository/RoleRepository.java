@@ -1,6 +1,11 @@
 package com.pavansingerreddy.note.repository;
 
+import java.util.Collection;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.pavansingerreddy.note.entity.Role;
@@ -10,4 +15,30 @@ import com.pavansingerreddy.note.entity.Role;
 @Repository
 public interface RoleRepository extends JpaRepository<Role, Long> {
 
+    // The @Modifying annotation tells Spring Data that this query changes the
+    // database. These native queries are used by the RoleCatalog to merge the
+    // duplicate roles which were created for every user before the roles were
+    // shared
+    @Modifying
+    @Query(value = """
+            DELETE FROM user_role \
+            WHERE role_id IN (:duplicateRoleIds) \
+            AND user_id IN (SELECT t.user_id FROM (SELECT ur.user_id FROM user_role ur WHERE ur.role_id = :roleId) t)\
+            """, nativeQuery = true)
+    // This method removes the links of the users to the duplicate roles if the
+    // user is already linked to the canonical role so that moving the links in
+    // moveUsersToRole does not create the same link twice
+    int deleteLinksToDuplicatesOfLinkedRole(@Param("roleId") long roleId,
+            @Param("duplicateRoleIds") Collection<Long> duplicateRoleIds);
+
+    @Modifying
+    @Query(value = "UPDATE user_role SET role_id = :roleId WHERE role_id IN (:duplicateRoleIds)", nativeQuery = true)
+    // This method links the users of the duplicate roles to the canonical role
+    int moveUsersToRole(@Param("roleId") long roleId, @Param("duplicateRoleIds") Collection<Long> duplicateRoleIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM role WHERE role_id IN (:roleIds)", nativeQuery = true)
+    // This method deletes the duplicate roles after no user is linked to them
+    int deleteRoles(@Param("roleIds") Collection<Long> roleIds);
+
 }
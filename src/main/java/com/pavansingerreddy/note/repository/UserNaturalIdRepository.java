@@ -0,0 +1,16 @@
+package com.pavansingerreddy.note.repository;
+
+import java.util.Optional;
+
+import com.pavansingerreddy.note.entity.Users;
+
+// This is a custom fragment of the UserRepository. Spring Data uses the
+// implementation of this fragment (UserNaturalIdRepositoryImpl) instead of
+// deriving a query from the method name
+public interface UserNaturalIdRepository {
+
+    // This method finds the user by the email which is the natural id of the user.
+    // It is answered from the second level cache when the user was loaded before
+    Optional<Users> findByEmail(String userEmail);
+
+}
@@ -0,0 +1,31 @@
+package com.pavansingerreddy.note.repository;
+
+import java.util.Optional;
+
+import org.hibernate.Session;
+
+import com.pavansingerreddy.note.entity.Users;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+// This is the implementation of the UserNaturalIdRepository fragment. Spring
+// Data finds it by the "Impl" suffix and adds it to the UserRepository
+public class UserNaturalIdRepositoryImpl implements UserNaturalIdRepository {
+
+    // The EntityManager of the current transaction
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    // This method loads the user through the natural id of the user instead of a
+    // query. Hibernate first looks up the user's id for the email in the natural id
+    // cache and then the user in the entity cache, so a user who was loaded before
+    // is returned without reading the users table
+    public Optional<Users> findByEmail(String userEmail) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(Users.class)
+                .loadOptional(userEmail);
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.pavansingerreddy.note.search;
+
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.pavansingerreddy.note.entity.Note;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+// Component annotation tells Spring that this class is a component so that spring
+// creates a single bean of it which is shared by all the requests
+@Component
+// LikeNoteSearch searches the notes with a LIKE query on the title and the
+// content. It cannot use any index so it is only the fallback of the other
+// searches for the search terms which their index cannot answer. It works on
+// every database
+public class LikeNoteSearch {
+
+    // the query which finds the notes of the user whose title or content contains
+    // the search term ignoring the case. A break down of the query is at the end of
+    // this file
+    private static final String SEARCH_QUERY = "SELECT n FROM Note n JOIN FETCH n.noteContent c WHERE n.user.userId = :userId AND (LOWER(n.title) LIKE LOWER(CONCAT('%', :term, '%')) OR LOWER(c.content) LIKE LOWER(CONCAT('%', :term, '%'))) ORDER BY n.updatedAt DESC, n.noteId DESC";
+
+    // the entity manager runs the query with an offset and a limit
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // This method returns a page of the matching notes, the most recently updated
+    // note first. The LIKE query cannot count the matching notes without scanning
+    // them, so instead one more note than requested is read and the number of
+    // matching notes is only known exactly on the last page
+    public NoteSearchResult search(Long userId, String searchTerm, int offset, int limit, int maxHits) {
+        List<Note> notes = entityManager.createQuery(SEARCH_QUERY, Note.class)
+                .setParameter("userId", userId)
+                .setParameter("term", searchTerm)
+                .setFirstResult(offset)
+                .setMaxResults(limit + 1)
+                .getResultList();
+        boolean hasMore = notes.size() > limit;
+        if (hasMore) {
+            notes = notes.subList(0, limit);
+        }
+        long countedHits = offset + notes.size() + (hasMore ? 1 : 0);
+        return new NoteSearchResult(NoteSearchResult.unranked(notes), Math.min(countedHits, maxHits), !hasMore && countedHits <= maxHits);
+    }
+
+}
+
+// NOTE: here is a break down of the above query : "SELECT n FROM Note n JOIN
+// FETCH n.noteContent c WHERE n.user.userId = :userId AND (LOWER(n.title) LIKE
+// LOWER(CONCAT('%', :term, '%')) OR LOWER(c.content) LIKE LOWER(CONCAT('%',
+// :term, '%'))) ORDER BY n.updatedAt DESC, n.noteId DESC"
+
+// explanation of the query :
+
+// SELECT n FROM Note n: This part of the query is selecting all the Note
+// entities and referring to them as n in the rest of the query.
+
+// JOIN FETCH n.noteContent c: This joins the content of each note from the
+// note_content table and refers to it as c. FETCH loads the content with the
+// note so that it is not read with another query for every note.
+
+// WHERE n.user.userId = :userId: This is a condition that filters the notes
+// based on their associated user. It only selects the notes where the userId
+// field of the user field of the Note entity matches the userId parameter
+// provided in the method call.
+
+// LOWER(n.title) LIKE LOWER(CONCAT('%', :term, '%')): This condition checks if
+// the title of the note contains the search :term. The LOWER function is used
+// to make the search case-insensitive. The CONCAT function is used to add ‘%’
+// before and after the search term, which allows it to match any part of the
+// title.
+
+// LOWER(c.content) LIKE LOWER(CONCAT('%', :term, '%')): This condition is
+// similar to the previous one, but it checks the content of the note instead of
+// the title.
+
+// AND: This is a logical operator that requires both conditions on its sides to
+// be true. So a Note entity will only be selected if both the userId matches
+// and the title or content contains the search term.
+
+// ORDER BY n.updatedAt DESC, n.noteId DESC: This returns the most recently
+// updated note first. The note id decides the order of the notes which were
+// updated at the same time so that the pages don't overlap.
+
+// So, in summary, this query selects all notes from a specific user where the
+// title or content of the note contains a certain search term. The search is
+// case-insensitive.
\ No newline at end of file
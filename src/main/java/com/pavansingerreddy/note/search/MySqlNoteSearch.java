@@ -0,0 +1,178 @@
+package com.pavansingerreddy.note.search;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.pavansingerreddy.note.entity.Note;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+// Component annotation tells Spring that this class is a component so that spring
+// creates a single bean of it which is shared by all the requests
+@Component
+// Profile annotation creates this bean only when the mysql profile is active
+@Profile("mysql")
+// DependsOn annotation creates this bean after the entity manager factory so
+// that Hibernate has already created the tables when the full text indexes are
+// added to them, and after the NoteContentMigration has moved the content of
+// the existing notes to the note_content table
+@DependsOn({ "entityManagerFactory", "noteContentMigration" })
+// MySqlNoteSearch searches the notes with a FULLTEXT index on the title of the
+// note table and one on the content of the note_content table. The indexes use
+// the ngram parser which splits the text into sequences of characters instead of
+// words, so a search term also matches inside a word like the LIKE query did, and
+// it works for languages which don't separate their words with spaces. The notes
+// are ranked by the sum of the relevance which MySQL calculates for the title and
+// for the content. MySQL cannot use a FULLTEXT index for a MATCH on the title OR
+// a MATCH on the content of the joined table, so the ids of the notes which
+// contain each token are looked up in the two indexes separately and combined
+// with UNION, and only those notes are joined back to be scoped to the user and
+// scored
+public class MySqlNoteSearch implements NoteSearch {
+
+    // name of the full text index on the note table
+    private static final String TITLE_INDEX_NAME = "ft_note_title";
+
+    // name of the full text index on the note_content table
+    private static final String CONTENT_INDEX_NAME = "ft_note_content_content";
+
+    // name of the full text index on the title and the content of the note table
+    // which was used before the content was moved to the note_content table
+    private static final String OLD_INDEX_NAME = "ft_note_title_content";
+
+    // the ngram parser of MySQL ignores tokens which are shorter than its token size
+    // (ngram_token_size, 2 by default) so such search terms use the LIKE query
+    private static final int MIN_TOKEN_LENGTH = 2;
+
+    // the full text query which returns the notes of the user in the order of their
+    // relevance. The ids of the matching notes are added by the search method as
+    // m0, m1... for the tokens. The score uses a query without the + operator so
+    // that a note is also ranked when its tokens are split between the title and
+    // the content. The note id decides the order of the notes with the same
+    // relevance and update time so that the pages don't overlap
+    private static final String SEARCH_QUERY = """
+            SELECT n.*, MATCH(n.title) AGAINST (:rankQuery IN BOOLEAN MODE) + \
+            MATCH(c.content) AGAINST (:rankQuery IN BOOLEAN MODE) AS score \
+            FROM %s \
+            JOIN note n ON n.note_id = m0.note_id JOIN note_content c ON c.note_id = n.note_id \
+            WHERE n.user_id = :userId \
+            ORDER BY score DESC, n.updated_at DESC, n.note_id DESC\
+            """;
+
+    // the query which counts the matching notes of the user up to a limit. The
+    // LIMIT in the sub query stops MySQL from reading more matches than needed for a
+    // broad search term
+    private static final String COUNT_QUERY = """
+            SELECT COUNT(*) FROM (SELECT 1 FROM %s \
+            JOIN note n ON n.note_id = m0.note_id \
+            WHERE n.user_id = :userId \
+            LIMIT :countLimit) hits\
+            """;
+
+    // the ids of the notes which contain a token in the title or in the content.
+    // Each side of the UNION is a lookup in one FULLTEXT index. With the ngram
+    // parser a quoted token matches its ngrams in a row
+    private static final String TOKEN_MATCHES = "(SELECT note_id FROM note WHERE MATCH(title) AGAINST (:token%1$d IN BOOLEAN MODE) UNION SELECT note_id FROM note_content WHERE MATCH(content) AGAINST (:token%1$d IN BOOLEAN MODE)) m%1$d";
+
+    // the join which keeps only the notes which also contain the next token
+    private static final String TOKEN_JOIN = "JOIN " + TOKEN_MATCHES + " ON m%1$d.note_id = m0.note_id";
+
+    // the JdbcTemplate is used to check and create the full text indexes
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // the entity manager runs the full text query and maps the rows to notes
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // autowiring our LikeNoteSearch which is used as the fallback
+    @Autowired
+    private LikeNoteSearch likeNoteSearch;
+
+    // PostConstruct annotation runs this method once after the bean is created. It
+    // adds the full text indexes if they don't exist yet because Hibernate's
+    // ddl-auto cannot create FULLTEXT indexes, and drops the index of the old note
+    // table. Building the indexes for existing notes can take a while but only
+    // happens once
+    @PostConstruct
+    void createIndexes() {
+        if (indexExists("note", OLD_INDEX_NAME)) {
+            jdbcTemplate.execute("ALTER TABLE note DROP INDEX " + OLD_INDEX_NAME);
+        }
+        if (!indexExists("note", TITLE_INDEX_NAME)) {
+            jdbcTemplate.execute("ALTER TABLE note ADD FULLTEXT INDEX " + TITLE_INDEX_NAME + " (title) WITH PARSER ngram");
+        }
+        if (!indexExists("note_content", CONTENT_INDEX_NAME)) {
+            jdbcTemplate.execute("ALTER TABLE note_content ADD FULLTEXT INDEX " + CONTENT_INDEX_NAME
+                    + " (content) WITH PARSER ngram");
+        }
+    }
+
+    // This method checks if the table of the current database has the given index
+    private boolean indexExists(String table, String index) {
+        Integer existing = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.statistics WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?",
+                Integer.class, table, index);
+        return existing != null && existing > 0;
+    }
+
+    @Override
+    // This method builds the boolean mode queries from the tokens of the search term
+    // and runs the full text query for the requested page and the count query. Every
+    // token must be present in the title or in the content. If the search term has
+    // no token or a token which is too short for the ngram parser the LIKE query is
+    // used instead
+    @SuppressWarnings("unchecked")
+    public NoteSearchResult search(Long userId, String searchTerm, int offset, int limit, int maxHits) {
+        List<String> tokens = NoteTokenizer.tokenizeQuery(searchTerm);
+        if (tokens.isEmpty() || tokens.stream().anyMatch(token -> token.length() < MIN_TOKEN_LENGTH)) {
+            return likeNoteSearch.search(userId, searchTerm, offset, limit, maxHits);
+        }
+        // the tokens only contain letters and digits so they cannot contain any
+        // operator of the boolean mode
+        List<String> quotedTokens = tokens.stream().map(token -> "\"" + token + "\"").toList();
+        String matches = IntStream.range(0, tokens.size())
+                .mapToObj(i -> i == 0 ? TOKEN_MATCHES.formatted(i) : TOKEN_JOIN.formatted(i))
+                .collect(Collectors.joining(" "));
+        // the rows are mapped to the note entity and its score
+        List<Object[]> rows = List.of();
+        if (limit > 0) {
+            NativeQuery<Object[]> searchQuery = entityManager.createNativeQuery(SEARCH_QUERY.formatted(matches))
+                    .unwrap(NativeQuery.class)
+                    .addEntity("n", Note.class)
+                    .addScalar("score", StandardBasicTypes.DOUBLE)
+                    .setParameter("userId", userId)
+                    .setParameter("rankQuery", String.join(" ", quotedTokens));
+            for (int i = 0; i < quotedTokens.size(); i++) {
+                searchQuery.setParameter("token" + i, quotedTokens.get(i));
+            }
+            rows = searchQuery.setFirstResult(offset).setMaxResults(limit).getResultList();
+        }
+        List<NoteSearchResult.Hit> hits = rows.stream()
+                .map(row -> new NoteSearchResult.Hit((Note) row[0], (Double) row[1]))
+                .toList();
+        // counting one more note than maxHits tells us if there are more matching
+        // notes than we report
+        Query countQuery = entityManager.createNativeQuery(COUNT_QUERY.formatted(matches))
+                .setParameter("userId", userId)
+                .setParameter("countLimit", maxHits + 1);
+        for (int i = 0; i < quotedTokens.size(); i++) {
+            countQuery.setParameter("token" + i, quotedTokens.get(i));
+        }
+        Number countedHits = (Number) countQuery.getSingleResult();
+        return NoteSearchResult.of(hits, countedHits.longValue(), maxHits);
+    }
+
+}
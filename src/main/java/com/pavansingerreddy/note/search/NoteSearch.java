@@ -0,0 +1,17 @@
+package com.pavansingerreddy.note.search;
+
+// NoteSearch finds the notes of a user which match a search term. There is one
+// implementation for each database profile so that the search can use the full
+// text index of the database: MySqlNoteSearch for the "mysql" profile,
+// PostgreSqlNoteSearch for the "postgresql" profile and PortableNoteSearch for
+// every other database
+public interface NoteSearch {
+
+    // This method returns up to limit notes of the user which match the search
+    // term, starting after the first offset notes, with the most relevant note
+    // first and the most recently updated note first among equally relevant notes.
+    // The matching notes are only counted up to maxHits. If limit is 0 the
+    // matching notes are only counted
+    NoteSearchResult search(Long userId, String searchTerm, int offset, int limit, int maxHits);
+
+}
@@ -0,0 +1,191 @@
+package com.pavansingerreddy.note.search;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pavansingerreddy.note.entity.Note;
+
+// Component annotation tells Spring that this class is a component so that spring
+// creates a single bean of it which is shared by all the requests
+@Component
+// NoteSearchIndex is an in memory inverted index of the notes of each user.
+// Instead of scanning every note of the user with a LIKE query, the search looks
+// up the tokens of the search term in the user's index so the search time
+// depends on the number of matching notes and not on the number of notes the
+// user has. The index of a user is built lazily from the database on the first
+// search and is kept up to date when the notes are created, updated or deleted
+public class NoteSearchIndex {
+
+    // number of counters used for detecting the modifications which happen while
+    // an index is being built from the database
+    private static final int MODIFICATION_STRIPES = 64;
+
+    // This annotation is used to inject the value of the property
+    // "notes.search.index.max-users" from the application.yml into the field.It is
+    // the maximum number of users whose index is kept in memory
+    @Value("${notes.search.index.max-users:1000}")
+    private int maxIndexedUsers;
+
+    // the transaction manager is used to read the notes of the user in a new
+    // transaction while building the index of the user
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // The indexes of the users by their user id. It is an access ordered
+    // LinkedHashMap so that the index of the least recently searched user is
+    // removed when we have more than maxIndexedUsers indexes in memory
+    private final Map<Long, UserNoteIndex> indexes = Collections
+            .synchronizedMap(new LinkedHashMap<Long, UserNoteIndex>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, UserNoteIndex> eldest) {
+                    return size() > maxIndexedUsers;
+                }
+            });
+
+    // every change of a note increments the counter of the user's stripe.while
+    // building an index we compare the counter before and after reading the notes
+    // from the database and if it changed we don't keep the index because it may
+    // miss the change
+    private final AtomicLongArray modifications = new AtomicLongArray(MODIFICATION_STRIPES);
+
+    // This method searches the notes of the user for the given search term. It
+    // returns the ids of the matching notes with the most recently updated note
+    // first or an empty Optional if the search term
+    // does not contain any token which can be looked up in the index (for example
+    // if it only contains punctuation) so that the caller can fall back to the
+    // database query. The notesOfUser supplier is used to build the index of the
+    // user from the database if it is not in memory yet
+    public Optional<List<Long>> search(Long userId, String searchTerm, Supplier<List<Note>> notesOfUser) {
+        // splitting the search term into tokens
+        List<String> queryTokens = NoteTokenizer.tokenizeQuery(searchTerm);
+        // if there are no tokens then the index cannot answer this search
+        if (queryTokens.isEmpty()) {
+            return Optional.empty();
+        }
+        // getting the index of the user or building it if it is not present
+        UserNoteIndex userNoteIndex = indexes.get(userId);
+        if (userNoteIndex == null) {
+            userNoteIndex = build(userId, notesOfUser);
+        }
+        // returning the note ids which match every token of the search term
+        return Optional.of(userNoteIndex.search(queryTokens));
+    }
+
+    // This method updates the note in the index of its user after the current
+    // transaction commits so that a rolled back change never reaches the index. The
+    // lock which orders the changes of the user is released when the transaction
+    // commits, so the change sequence of the note is passed to the index which
+    // ignores the change if a newer one was applied first
+    public void onNoteSaved(Note note) {
+        // copying the values now because the note entity should not be used after
+        // the transaction is completed
+        Long userId = note.getUser().getUserId();
+        Long noteId = note.getNoteId();
+        long changeSequence = note.getChangeSequence();
+        Date updatedAt = note.getUpdatedAt();
+        String title = note.getTitle();
+        String content = note.getContent();
+        afterCommit(() -> {
+            markModified(userId);
+            // if the index of the user is not in memory then it will be built with this
+            // change from the database on the next search
+            UserNoteIndex userNoteIndex = indexes.get(userId);
+            if (userNoteIndex != null) {
+                userNoteIndex.put(noteId, changeSequence, updatedAt, title, content);
+            }
+        });
+    }
+
+    // This method removes the note from the index of its user after the current
+    // transaction commits. The change sequence is the one of the note's tombstone
+    public void onNoteDeleted(Long userId, Long noteId, long changeSequence) {
+        afterCommit(() -> {
+            markModified(userId);
+            UserNoteIndex userNoteIndex = indexes.get(userId);
+            if (userNoteIndex != null) {
+                userNoteIndex.remove(noteId, changeSequence);
+            }
+        });
+    }
+
+    // This method removes the index of the user from memory so that it is built
+    // again from the database on the next search
+    public void evict(Long userId) {
+        markModified(userId);
+        indexes.remove(userId);
+    }
+
+    // This method builds the index of the user from the notes which are present in
+    // the database
+    private UserNoteIndex build(Long userId, Supplier<List<Note>> notesOfUser) {
+        // remembering the modification counter before reading the notes
+        long modificationsBefore = modifications.get(stripe(userId));
+        // the notes are read in a new transaction which starts after the counter was
+        // read. The transaction of the caller may already have its snapshot of the
+        // database from an earlier query, so a change which was committed between
+        // that snapshot and reading the counter would be missing from the index
+        // without incrementing the counter while we read the notes
+        TransactionTemplate newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        newTransaction.setReadOnly(true);
+        UserNoteIndex userNoteIndex = newTransaction.execute(status -> {
+            UserNoteIndex notesIndex = new UserNoteIndex();
+            for (Note note : notesOfUser.get()) {
+                notesIndex.put(note.getNoteId(), note.getChangeSequence(), note.getUpdatedAt(), note.getTitle(),
+                        note.getContent());
+            }
+            return notesIndex;
+        });
+        // we only keep the index if no note of the user (or of a user in the same
+        // stripe) was changed while we were reading the notes. Otherwise we only use it
+        // for this search and the next search builds it again
+        if (modifications.get(stripe(userId)) == modificationsBefore) {
+            UserNoteIndex existing = indexes.putIfAbsent(userId, userNoteIndex);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return userNoteIndex;
+    }
+
+    // This method increments the modification counter of the user's stripe
+    private void markModified(Long userId) {
+        modifications.incrementAndGet(stripe(userId));
+    }
+
+    // This method returns the stripe of the modification counters for the user
+    private int stripe(Long userId) {
+        return (int) Math.floorMod(userId, (long) MODIFICATION_STRIPES);
+    }
+
+    // This method runs the action after the current transaction commits or
+    // immediately if there is no transaction
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.pavansingerreddy.note.search;
+
+import java.util.List;
+
+import com.pavansingerreddy.note.entity.Note;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// @Getter is a Lombok annotation to create the getters of all the fields
+@Getter
+// @AllArgsConstructor is a Lombok annotation to create a constructor with all
+// the fields
+@AllArgsConstructor
+// NoteSearchResult contains one page of the notes which match a search term and
+// the number of matching notes. The matching notes are only counted up to the
+// maximum number of results so a broad search term does not make the database
+// count every note of the user
+public class NoteSearchResult {
+
+    // the matching notes of the requested page with the most relevant note first
+    private final List<Hit> hits;
+    // number of matching notes, at most the maximum number of results
+    private final long totalHits;
+    // false if there are more matching notes than totalHits
+    private final boolean totalHitsExact;
+
+    // This method creates the result from the number of matching notes which were
+    // counted with a limit of maxHits + 1, so that a count above maxHits means that
+    // there are more than maxHits matching notes
+    public static NoteSearchResult of(List<Hit> hits, long countedHits, int maxHits) {
+        return new NoteSearchResult(hits, Math.min(countedHits, maxHits), countedHits <= maxHits);
+    }
+
+    // This method returns the notes as hits without a score, for the searches which
+    // don't rank the matching notes
+    public static List<Hit> unranked(List<Note> notes) {
+        return notes.stream().map(note -> new Hit(note, null)).toList();
+    }
+
+    // @Getter is a Lombok annotation to create the getters of all the fields
+    @Getter
+    // @AllArgsConstructor is a Lombok annotation to create a constructor with all
+    // the fields
+    @AllArgsConstructor
+    // Hit is a matching note with the relevance which the database calculated for
+    // it, the score is null if the search does not rank the notes
+    public static class Hit {
+
+        private final Note note;
+        private final Double score;
+
+    }
+
+}
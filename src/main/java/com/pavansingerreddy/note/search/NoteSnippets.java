@@ -0,0 +1,126 @@
+package com.pavansingerreddy.note.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.pavansingerreddy.note.dto.HighlightDto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// This is a utility class which finds the parts of a note which match the terms
+// of a search and cuts a snippet of the content around the first match, so that
+// the search results don't have to contain the whole content of the notes
+public class NoteSnippets {
+
+    // the mark which is added where the snippet cuts the content
+    private static final String ELLIPSIS = "…";
+
+    // This method returns the parts of the text which contain one of the terms
+    // ignoring the case, ordered by their position. Overlapping or adjacent parts
+    // are merged into one
+    public static List<HighlightDto> highlights(String text, List<String> terms) {
+        List<HighlightDto> matches = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return matches;
+        }
+        for (String term : terms) {
+            if (term.isEmpty()) {
+                continue;
+            }
+            for (int i = 0; i + term.length() <= text.length(); i++) {
+                if (text.regionMatches(true, i, term, 0, term.length())) {
+                    matches.add(new HighlightDto(i, term.length()));
+                }
+            }
+        }
+        matches.sort(Comparator.comparingInt(HighlightDto::getStart));
+        List<HighlightDto> merged = new ArrayList<>();
+        for (HighlightDto match : matches) {
+            HighlightDto last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && match.getStart() <= last.getStart() + last.getLength()) {
+                int end = Math.max(last.getStart() + last.getLength(), match.getStart() + match.getLength());
+                last.setLength(end - last.getStart());
+            } else {
+                merged.add(match);
+            }
+        }
+        return merged;
+    }
+
+    // This method cuts a snippet of at most length characters out of the text. The
+    // snippet starts a little before the first match so that the match is shown
+    // with some context, and it starts and ends at a white space where possible. An
+    // ellipsis is added where the text was cut. If nothing matches the snippet is
+    // the beginning of the text
+    public static Snippet snippet(String text, List<String> terms, int length) {
+        if (text == null) {
+            text = "";
+        }
+        List<HighlightDto> highlights = highlights(text, terms);
+        if (text.length() <= length) {
+            return new Snippet(text, highlights);
+        }
+        // the window starts a quarter of its length before the first match and is
+        // moved back if it would go past the end of the text
+        int firstMatch = highlights.isEmpty() ? 0 : highlights.get(0).getStart();
+        int start = Math.max(0, Math.min(firstMatch - length / 4, text.length() - length));
+        int end = start + length;
+        // moving the start after the next white space so that the snippet does not
+        // begin in the middle of a word, but never past the first match
+        if (start > 0 && !Character.isWhitespace(text.charAt(start - 1))) {
+            for (int i = start; i < Math.min(firstMatch, start + length / 4); i++) {
+                if (Character.isWhitespace(text.charAt(i))) {
+                    start = i + 1;
+                    break;
+                }
+            }
+        }
+        // moving the end back to the last white space so that the snippet does not
+        // end in the middle of a word
+        if (end < text.length() && !Character.isWhitespace(text.charAt(end))) {
+            for (int i = end - 1; i > Math.max(start, end - length / 4); i--) {
+                if (Character.isWhitespace(text.charAt(i))) {
+                    end = i;
+                    break;
+                }
+            }
+        }
+        // never cutting a character which is made of two UTF-16 code units in half
+        if (start > 0 && Character.isLowSurrogate(text.charAt(start))) {
+            start++;
+        }
+        if (end < text.length() && Character.isLowSurrogate(text.charAt(end))) {
+            end--;
+        }
+        String prefix = start > 0 ? ELLIPSIS : "";
+        String suffix = end < text.length() ? ELLIPSIS : "";
+        // keeping the matches inside the snippet with their positions moved to the
+        // snippet, a match which is cut at the end of the snippet is shortened
+        List<HighlightDto> snippetHighlights = new ArrayList<>();
+        for (HighlightDto highlight : highlights) {
+            int highlightStart = highlight.getStart();
+            int highlightEnd = Math.min(highlightStart + highlight.getLength(), end);
+            if (highlightStart >= start && highlightEnd > highlightStart) {
+                snippetHighlights.add(new HighlightDto(highlightStart - start + prefix.length(),
+                        highlightEnd - highlightStart));
+            }
+        }
+        return new Snippet(prefix + text.substring(start, end) + suffix, snippetHighlights);
+    }
+
+    // @Getter is a Lombok annotation to create the getters of all the fields
+    @Getter
+    // @AllArgsConstructor is a Lombok annotation to create a constructor with all
+    // the fields
+    @AllArgsConstructor
+    // Snippet is the cut text and the parts of it which match the search terms
+    public static class Snippet {
+
+        private final String text;
+        private final List<HighlightDto> highlights;
+
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.pavansingerreddy.note.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// This is a utility class which splits the text of the notes and the search
+// terms into lower case tokens so that the same rules are used while indexing
+// and while searching
+public class NoteTokenizer {
+
+    // any character which is not a letter or a digit separates two tokens
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // This method returns the distinct lower case tokens of the given text. It
+    // returns an empty set if the text is null or does not contain any letter or
+    // digit
+    public static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        // lower casing the text with the root locale so that the search is case
+        // insensitive like the previous LOWER(...) LIKE LOWER(...) query
+        for (String token : SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // This method returns the tokens of a search term as a list
+    public static List<String> tokenizeQuery(String searchTerm) {
+        return new ArrayList<>(tokenize(searchTerm));
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.pavansingerreddy.note.search;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.pavansingerreddy.note.entity.Note;
+import com.pavansingerreddy.note.repository.NoteRepository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+// Component annotation tells Spring that this class is a component so that spring
+// creates a single bean of it which is shared by all the requests
+@Component
+// Profile annotation creates this bean only when neither the mysql nor the
+// postgresql profile is active, as those profiles use the full text index of
+// their database
+@Profile("!mysql & !postgresql")
+// PortableNoteSearch is the search which works on every database. It looks up
+// the search term in the in memory NoteSearchIndex of the user and falls back to
+// the LIKE query which cannot use any index. The index does not rank the notes
+// so all the matching notes are equally relevant and ordered by their update
+// time. The index also picks the page so only the notes of the page are read
+// from the database
+public class PortableNoteSearch implements NoteSearch {
+
+    // the query which loads the notes of the page which were found in the index
+    private static final String NOTES_BY_ID_QUERY = "SELECT n FROM Note n JOIN FETCH n.noteContent WHERE n.noteId IN :noteIds";
+
+    // autowiring our NoteRepository so that the bean or instance of NoteRepository
+    // will be injected here by the spring IOC container
+    @Autowired
+    private NoteRepository noteRepository;
+
+    // autowiring our NoteSearchIndex which is the in memory inverted index of the
+    // notes of each user
+    @Autowired
+    private NoteSearchIndex noteSearchIndex;
+
+    // autowiring our LikeNoteSearch which is used when the index cannot answer
+    @Autowired
+    private LikeNoteSearch likeNoteSearch;
+
+    // the entity manager loads the page of the matching notes
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    // This method looks up the search term in the in memory search index of the
+    // user which gives us the ids of the notes whose title or content contains words
+    // starting with the words of the search term, the most recently updated note
+    // first. If the index of the user is not in memory yet it is built from all the
+    // notes of the user
+    public NoteSearchResult search(Long userId, String searchTerm, int offset, int limit, int maxHits) {
+        Optional<List<Long>> matchingNoteIds = noteSearchIndex.search(userId, searchTerm,
+                () -> noteRepository.findByUser_UserId(userId));
+        // if the index cannot answer the search (for example if the search term only
+        // contains punctuation) we search for the search term in the note's title and
+        // the note's content using the database query
+        if (matchingNoteIds.isEmpty()) {
+            return likeNoteSearch.search(userId, searchTerm, offset, limit, maxHits);
+        }
+        List<Long> noteIds = matchingNoteIds.get();
+        // the ids of the requested page within the first maxHits matching notes, so
+        // the query binds at most limit ids however many notes match
+        int end = (int) Math.min(Math.min((long) offset + limit, maxHits), noteIds.size());
+        List<Long> pageNoteIds = offset < end ? noteIds.subList(offset, end) : List.of();
+        List<Note> notes = List.of();
+        if (!pageNoteIds.isEmpty()) {
+            Map<Long, Note> notesById = entityManager.createQuery(NOTES_BY_ID_QUERY, Note.class)
+                    .setParameter("noteIds", pageNoteIds)
+                    .getResultList()
+                    .stream()
+                    .collect(Collectors.toMap(Note::getNoteId, Function.identity()));
+            // keeping the order of the index. A note which was deleted after the search
+            // is left out of the page
+            notes = pageNoteIds.stream().map(notesById::get).filter(Objects::nonNull).toList();
+        }
+        // the index knows the exact number of matching notes so no count query is
+        // needed
+        return NoteSearchResult.of(NoteSearchResult.unranked(notes), noteIds.size(), maxHits);
+    }
+
+}
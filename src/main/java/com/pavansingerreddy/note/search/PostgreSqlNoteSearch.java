@@ -0,0 +1,157 @@
+package com.pavansingerreddy.note.search;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.pavansingerreddy.note.entity.Note;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+// Component annotation tells Spring that this class is a component so that spring
+// creates a single bean of it which is shared by all the requests
+@Component
+// Profile annotation creates this bean only when the postgresql profile is active
+@Profile("postgresql")
+// DependsOn annotation creates this bean after the entity manager factory so
+// that Hibernate has already created the tables when the search columns are
+// added to them, and after the NoteContentMigration has moved the content of
+// the existing notes to the note_content table
+@DependsOn({ "entityManagerFactory", "noteContentMigration" })
+// PostgreSqlNoteSearch searches the notes with generated tsvector columns which
+// contain the words of the title (with a higher weight) in the note table and of
+// the content in the note_content table. The "simple" text search configuration
+// is used so that the words are only lower cased and not stemmed for a particular
+// language, and every word of the search term is matched as a prefix like in the
+// in memory search index. Each vector has its own GIN index. Like in the
+// MySqlNoteSearch the ids of the notes which contain each word are looked up in
+// the two indexes separately and combined with UNION, so the words can be split
+// between the title and the content while the indexes can still be used, and
+// only those notes are joined back to be scoped to the user. The notes are
+// ranked with ts_rank over both vectors
+public class PostgreSqlNoteSearch implements NoteSearch {
+
+    // the full text query which returns the notes of the user in the order of their
+    // rank. The ids of the matching notes are added by the search method as m0,
+    // m1... for the tokens. The note id decides the order of the notes with the same
+    // rank and update time so that the pages don't overlap
+    private static final String SEARCH_QUERY = """
+            SELECT n.*, ts_rank(n.title_vector || c.content_vector, to_tsquery('simple', :query)) AS score \
+            FROM %s \
+            JOIN note n ON n.note_id = m0.note_id JOIN note_content c ON c.note_id = n.note_id \
+            WHERE n.user_id = :userId \
+            ORDER BY score DESC, n.updated_at DESC, n.note_id DESC\
+            """;
+
+    // the query which counts the matching notes of the user up to a limit. The
+    // LIMIT in the sub query stops PostgreSQL from reading more matches than needed
+    // for a broad search term
+    private static final String COUNT_QUERY = """
+            SELECT COUNT(*) FROM (SELECT 1 FROM %s \
+            JOIN note n ON n.note_id = m0.note_id \
+            WHERE n.user_id = :userId \
+            LIMIT :countLimit) hits\
+            """;
+
+    // the ids of the notes which contain a token in the title or in the content.
+    // Each side of the UNION is a scan of the GIN index of one vector
+    private static final String TOKEN_MATCHES = "(SELECT note_id FROM note WHERE title_vector @@ to_tsquery('simple', :token%1$d) UNION SELECT note_id FROM note_content WHERE content_vector @@ to_tsquery('simple', :token%1$d)) m%1$d";
+
+    // the join which keeps only the notes which also contain the next token
+    private static final String TOKEN_JOIN = "JOIN " + TOKEN_MATCHES + " ON m%1$d.note_id = m0.note_id";
+
+    // the JdbcTemplate is used to create the search columns
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // the entity manager runs the full text query and maps the rows to notes
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // autowiring our LikeNoteSearch which is used as the fallback
+    @Autowired
+    private LikeNoteSearch likeNoteSearch;
+
+    // PostConstruct annotation runs this method once after the bean is created. It
+    // adds the generated search columns to the note and the note_content tables
+    // with their GIN indexes if they don't exist yet because Hibernate's ddl-auto
+    // cannot create them. The
+    // search column which the note table had before the content was moved to the
+    // note_content table is dropped by the NoteContentMigration. The columns are not
+    // mapped in the entities so Hibernate never writes to them and the database
+    // keeps them up to date when a note is inserted or updated
+    @PostConstruct
+    void createSearchColumns() {
+        jdbcTemplate.execute("""
+                ALTER TABLE note ADD COLUMN IF NOT EXISTS title_vector tsvector GENERATED ALWAYS AS (\
+                setweight(to_tsvector('simple', coalesce(title, '')), 'A')) STORED\
+                """);
+        jdbcTemplate.execute("""
+                ALTER TABLE note_content ADD COLUMN IF NOT EXISTS content_vector tsvector GENERATED ALWAYS AS (\
+                setweight(to_tsvector('simple', coalesce(content, '')), 'B')) STORED\
+                """);
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_note_title_vector ON note USING GIN (title_vector)");
+        jdbcTemplate.execute(
+                "CREATE INDEX IF NOT EXISTS idx_note_content_content_vector ON note_content USING GIN (content_vector)");
+    }
+
+    @Override
+    // This method builds the tsqueries from the tokens of the search term and runs
+    // the full text query for the requested page and the count query. Every token
+    // must be present in the title or in the content. If the search term has no
+    // token the LIKE query is used instead
+    @SuppressWarnings("unchecked")
+    public NoteSearchResult search(Long userId, String searchTerm, int offset, int limit, int maxHits) {
+        List<String> tokens = NoteTokenizer.tokenizeQuery(searchTerm);
+        if (tokens.isEmpty()) {
+            return likeNoteSearch.search(userId, searchTerm, offset, limit, maxHits);
+        }
+        // the tokens only contain letters and digits so they cannot contain any
+        // operator of the tsquery syntax. ":*" matches every word starting with the
+        // token, and the query of the rank requires all of them with "&"
+        List<String> prefixTokens = tokens.stream().map(token -> token + ":*").toList();
+        String query = String.join(" & ", prefixTokens);
+        String matches = IntStream.range(0, tokens.size())
+                .mapToObj(i -> i == 0 ? TOKEN_MATCHES.formatted(i) : TOKEN_JOIN.formatted(i))
+                .collect(Collectors.joining(" "));
+        // the rows are mapped to the note entity and its score
+        List<Object[]> rows = List.of();
+        if (limit > 0) {
+            NativeQuery<Object[]> searchQuery = entityManager.createNativeQuery(SEARCH_QUERY.formatted(matches))
+                    .unwrap(NativeQuery.class)
+                    .addEntity("n", Note.class)
+                    .addScalar("score", StandardBasicTypes.DOUBLE)
+                    .setParameter("userId", userId)
+                    .setParameter("query", query);
+            for (int i = 0; i < prefixTokens.size(); i++) {
+                searchQuery.setParameter("token" + i, prefixTokens.get(i));
+            }
+            rows = searchQuery.setFirstResult(offset).setMaxResults(limit).getResultList();
+        }
+        List<NoteSearchResult.Hit> hits = rows.stream()
+                .map(row -> new NoteSearchResult.Hit((Note) row[0], (Double) row[1]))
+                .toList();
+        // counting one more note than maxHits tells us if there are more matching
+        // notes than we report
+        Query countQuery = entityManager.createNativeQuery(COUNT_QUERY.formatted(matches))
+                .setParameter("userId", userId)
+                .setParameter("countLimit", maxHits + 1);
+        for (int i = 0; i < prefixTokens.size(); i++) {
+            countQuery.setParameter("token" + i, prefixTokens.get(i));
+        }
+        Number countedHits = (Number) countQuery.getSingleResult();
+        return NoteSearchResult.of(hits, countedHits.longValue(), maxHits);
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.pavansingerreddy.note.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+// This class holds the inverted index of a single user's notes. For every token
+// which appears in the title or content of the user's notes it keeps the set of
+// note ids (the postings) which contain that token.It is package private
+// because only the NoteSearchIndex should create and use it
+class UserNoteIndex {
+
+    // postings maps each token to the note ids which contain the token.we are using
+    // a sorted TreeMap so that we can find all the tokens which start with a prefix
+    // by using a range scan instead of looking at every token
+    private final NavigableMap<String, Set<Long>> postings = new TreeMap<>();
+
+    // noteTokens maps each note id to the tokens of that note so that when a note is
+    // updated or deleted we can remove the note id only from the postings it is
+    // present in
+    private final Map<Long, Set<String>> noteTokens = new HashMap<>();
+
+    // changeSequences maps each note id to the change sequence of the last change
+    // of the note which was applied to the index. The changes reach the index after
+    // their transactions commit, which is not always in the order of their change
+    // sequences, so a change which is older than the applied one is ignored. The
+    // change sequences of the deleted notes are kept as well so that an older save
+    // does not bring a deleted note back
+    private final Map<Long, Long> changeSequences = new HashMap<>();
+
+    // updatedAts maps each indexed note id to the time the note was last updated, so
+    // the matching notes are ordered and paged in memory and only the notes of the
+    // requested page are read from the database
+    private final Map<Long, Long> updatedAts = new HashMap<>();
+
+    // This method adds the note to the index or replaces the previous tokens of the
+    // note if the note is already indexed. It does nothing if a newer change of the
+    // note was already applied
+    synchronized void put(Long noteId, long changeSequence, Date updatedAt, String title, String content) {
+        if (!advance(noteId, changeSequence)) {
+            return;
+        }
+        // removing the old postings of the note if it is already present
+        removeTokens(noteId);
+        // getting all the tokens from the title and the content of the note
+        Set<String> tokens = NoteTokenizer.tokenize(title);
+        tokens.addAll(NoteTokenizer.tokenize(content));
+        // adding the note id to the postings of each token
+        for (String token : tokens) {
+            postings.computeIfAbsent(token, key -> new HashSet<>()).add(noteId);
+        }
+        // remembering the tokens of the note so that we can remove them later
+        noteTokens.put(noteId, tokens);
+        updatedAts.put(noteId, updatedAt != null ? updatedAt.getTime() : 0L);
+    }
+
+    // This method removes the note from the index unless a newer change of the note
+    // was already applied
+    synchronized void remove(Long noteId, long changeSequence) {
+        if (advance(noteId, changeSequence)) {
+            removeTokens(noteId);
+        }
+    }
+
+    // This method records the change sequence of a change which is applied to the
+    // note and returns false if the change is not newer than the last applied one
+    private boolean advance(Long noteId, long changeSequence) {
+        Long applied = changeSequences.get(noteId);
+        if (applied != null && applied >= changeSequence) {
+            return false;
+        }
+        changeSequences.put(noteId, changeSequence);
+        return true;
+    }
+
+    // This method removes the note from all the postings it is present in
+    private void removeTokens(Long noteId) {
+        // getting the tokens of the note which we remembered while indexing it
+        Set<String> tokens = noteTokens.remove(noteId);
+        updatedAts.remove(noteId);
+        // if the note is not indexed then there is nothing to remove
+        if (tokens == null) {
+            return;
+        }
+        // removing the note id from each posting and dropping the posting if it
+        // becomes empty so that the index does not keep tokens of deleted notes
+        for (String token : tokens) {
+            Set<Long> noteIds = postings.get(token);
+            if (noteIds != null) {
+                noteIds.remove(noteId);
+                if (noteIds.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+
+    // This method returns the ids of the notes which contain a token starting with
+    // every one of the given query tokens. So "meet notes" matches the notes which
+    // contain "meeting" and "notes" in their title or content. The most recently
+    // updated note comes first and the note id decides the order of the notes which
+    // were updated at the same time, like in the LIKE query
+    synchronized List<Long> search(List<String> queryTokens) {
+        List<Long> noteIds = new ArrayList<>(matchingNoteIds(queryTokens));
+        noteIds.sort(Comparator.comparing((Long noteId) -> updatedAts.get(noteId))
+                .thenComparing(Comparator.naturalOrder())
+                .reversed());
+        return noteIds;
+    }
+
+    // This method returns the ids of the notes which match all the query tokens in
+    // no particular order
+    private Set<Long> matchingNoteIds(List<String> queryTokens) {
+        Set<Long> result = null;
+        for (String queryToken : queryTokens) {
+            // collecting the note ids of every indexed token which starts with the query
+            // token. The subMap is a range scan over the sorted tokens so it only visits the
+            // tokens which match the prefix
+            Set<Long> matches = new HashSet<>();
+            for (Set<Long> noteIds : postings
+                    .subMap(queryToken, true, queryToken + Character.MAX_VALUE, true).values()) {
+                matches.addAll(noteIds);
+            }
+            // intersecting the matches of this query token with the matches of the previous
+            // query tokens because a note should match all the query tokens
+            if (result == null) {
+                result = matches;
+            } else {
+                result.retainAll(matches);
+            }
+            // if no note matches then there is no need to look at the other query tokens
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result != null ? result : new HashSet<>();
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.pavansingerreddy.note.services;
+
+import java.time.Duration;
+import java.util.Date;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.pavansingerreddy.note.entity.EmailOutbox;
+import com.pavansingerreddy.note.repository.EmailOutboxRepository;
+
+// Component annotation tells Spring that this class is a component so that spring
+// creates a bean of it and runs its scheduled method
+@Component
+// EmailOutboxCleanup deletes the emails of the outbox which were sent long ago so
+// that the email_outbox table does not grow with every email which was ever sent
+public class EmailOutboxCleanup {
+
+    // the logger which writes the number of deleted emails to the application log
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxCleanup.class);
+
+    // autowiring our EmailOutboxRepository so that the bean or instance of
+    // EmailOutboxRepository will be injected here by the spring IOC container
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    // number of days for which the sent emails are kept in the outbox
+    @Value("${mail.outbox.retention-days:7}")
+    private long retentionDays;
+
+    // Scheduled annotation runs this method every day at the time of the cron
+    // expression and Async annotation runs it on the maintenance executor so that
+    // the scheduler thread which also runs the EmailOutboxDispatcher is not blocked
+    // by the delete
+    @Scheduled(cron = "${mail.outbox.cleanup-cron:0 30 3 * * *}")
+    @Async("maintenanceExecutor")
+    // This method deletes the sent emails which are older than the retention days
+    public void deleteSentEmails() {
+        Date before = new Date(System.currentTimeMillis() - Duration.ofDays(retentionDays).toMillis());
+        int deleted = emailOutboxRepository.deleteByStatusCreatedBefore(EmailOutbox.Status.SENT, before);
+        log.info("Deleted {} sent emails from the email outbox", deleted);
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.pavansingerreddy.note.services;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import com.pavansingerreddy.note.entity.EmailOutbox;
+
+// Component annotation tells Spring that this class is a component so that spring
+// creates a bean of it and runs its scheduled method
+@Component
+// EmailOutboxDispatcher sends the emails of the outbox in the background. The
+// api's only save the email in the outbox so the time taken by the SMTP server
+// does not add to the time of the request, and an email which could not be sent
+// is retried instead of being lost
+public class EmailOutboxDispatcher {
+
+    // autowiring our EmailOutboxService which claims the emails and records the
+    // results
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    // autowiring our EmailService which sends the emails
+    @Autowired
+    private EmailService emailService;
+
+    // autowiring our MailSenderPool whose idle SMTP connections are closed after
+    // every run
+    @Autowired
+    private MailSenderPool mailSenderPool;
+
+    // the executor on which the batches of emails are sent
+    @Autowired
+    @Qualifier("emailOutboxExecutor")
+    private ThreadPoolTaskExecutor emailOutboxExecutor;
+
+    // maximum number of emails which are claimed and sent at once by one thread
+    @Value("${mail.outbox.batch-size:50}")
+    private int batchSize;
+
+    // number of threads which send the emails in parallel
+    @Value("${mail.outbox.concurrency:2}")
+    private int concurrency;
+
+    // Scheduled annotation runs this method again after the given time since the
+    // end of its previous run so two runs never overlap
+    @Scheduled(fixedDelayString = "${mail.outbox.poll-interval-ms:2000}")
+    // This method starts one worker per thread and waits for all of them. Each
+    // worker keeps claiming and sending batches until the outbox has no more
+    // emails which can be sent now
+    public void dispatch() {
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            workers.add(CompletableFuture.runAsync(this::drain, emailOutboxExecutor));
+        }
+        CompletableFuture.allOf(workers.toArray(new CompletableFuture<?>[0])).join();
+        // closing the SMTP connections which were not used for a while so that the
+        // SMTP servers don't have to close them
+        mailSenderPool.closeIdleConnections();
+    }
+
+    // This method claims and sends batches until a batch is not full which means
+    // there are no more emails to send right now, or until every mail sender has
+    // reached its rate limit
+    private void drain() {
+        List<EmailOutbox> emails;
+        boolean rateLimited = false;
+        do {
+            emails = emailOutboxService.claimBatch(batchSize);
+            if (!emails.isEmpty()) {
+                rateLimited = send(emails);
+            }
+        } while (emails.size() == batchSize && !rateLimited);
+    }
+
+    // This method sends the claimed emails grouped by the mail sender which should
+    // be used so that each group is sent over one SMTP connection, and then records
+    // which emails were sent. The emails which were not sent because every sender
+    // reached its rate limit are put back without counting the attempt until the
+    // time their group has to wait. It returns true if that happened
+    private boolean send(List<EmailOutbox> emails) {
+        Map<Long, String> failures = new HashMap<>();
+        Set<Long> rateLimitedIds = new HashSet<>();
+        // the rate limited emails by the time they have to wait, as every group of
+        // emails gets its own time from its mail sender
+        Map<Duration, List<Long>> rateLimitedIdsByRetryAfter = new HashMap<>();
+        Map<Integer, List<EmailOutbox>> emailsByMailNo = emails.stream()
+                .collect(Collectors.groupingBy(EmailOutbox::getMailNoToUseForSendingEmail));
+        for (Map.Entry<Integer, List<EmailOutbox>> group : emailsByMailNo.entrySet()) {
+            // remembering which message belongs to which email of the outbox
+            Map<SimpleMailMessage, Long> emailIds = new IdentityHashMap<>();
+            List<SimpleMailMessage> mailMessages = new ArrayList<>();
+            for (EmailOutbox email : group.getValue()) {
+                SimpleMailMessage mailMessage = new SimpleMailMessage();
+                mailMessage.setTo(email.getToEmail());
+                mailMessage.setSubject(email.getSubject());
+                mailMessage.setText(email.getBody());
+                mailMessages.add(mailMessage);
+                emailIds.put(mailMessage, email.getId());
+            }
+            try {
+                EmailService.SendResult result = emailService.sendEmails(mailMessages, group.getKey());
+                result.getFailedMessages()
+                        .forEach((mailMessage, e) -> failures.put(emailIds.get(mailMessage), String.valueOf(e)));
+                for (SimpleMailMessage mailMessage : result.getRateLimitedMessages()) {
+                    Long emailId = emailIds.get(mailMessage);
+                    rateLimitedIds.add(emailId);
+                    rateLimitedIdsByRetryAfter.computeIfAbsent(result.getRetryAfter(), retryAfter -> new ArrayList<>())
+                            .add(emailId);
+                }
+            } catch (RuntimeException e) {
+                // if something unexpected happens the whole group is retried later
+                for (Long emailId : emailIds.values()) {
+                    failures.put(emailId, String.valueOf(e));
+                }
+            }
+        }
+        rateLimitedIdsByRetryAfter.forEach((retryAfter, emailIds) -> emailOutboxService.postpone(emailIds, retryAfter));
+        emailOutboxService.recordResults(emails.stream().map(EmailOutbox::getId)
+                .filter(emailId -> !rateLimitedIds.contains(emailId)).toList(), failures);
+        return !rateLimitedIds.isEmpty();
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.pavansingerreddy.note.services;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.pavansingerreddy.note.entity.EmailOutbox;
+import com.pavansingerreddy.note.repository.EmailOutboxRepository;
+
+// @Service is a Spring annotation that marks this class as a service in the Spring application context.
+@Service
+// EmailOutboxService adds the emails to the outbox and is used by the
+// EmailOutboxDispatcher to claim the pending emails and to record the result of
+// sending them. Each method runs in its own short transaction so that no row is
+// locked while the email is being sent
+public class EmailOutboxService {
+
+    // the longest time between two attempts of sending a failed email
+    private static final Duration MAX_RETRY_DELAY = Duration.ofHours(1);
+
+    // autowiring our EmailOutboxRepository so that the bean or instance of
+    // EmailOutboxRepository will be injected here by the spring IOC container
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    // number of attempts after which an email is marked as FAILED
+    @Value("${mail.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    // time for which a claimed email belongs to the dispatcher which claimed it.
+    // If the email is not sent in this time (for example because the application
+    // stopped) it is claimed again
+    @Value("${mail.outbox.lease-seconds:120}")
+    private long leaseSeconds;
+
+    // time to wait before the first retry of a failed email. It is doubled after
+    // every failed attempt
+    @Value("${mail.outbox.retry-delay-seconds:30}")
+    private long retryDelaySeconds;
+
+    // adding transactional annotation so that the email is saved in the
+    // transaction of the caller. So the email is only saved if the token which is
+    // sent in the email is also saved
+    @Transactional
+    // This method adds a new email to the outbox which will be sent by the
+    // EmailOutboxDispatcher
+    public EmailOutbox enqueue(String toEmail, String subject, String body, int mailNoToUseForSendingEmail) {
+        return emailOutboxRepository.save(new EmailOutbox(toEmail, subject, body, mailNoToUseForSendingEmail));
+    }
+
+    @Transactional
+    // This method claims up to batchSize emails which can be sent now. The claimed
+    // emails are marked as PROCESSING until the end of the lease so that other
+    // dispatchers skip them after this transaction commits
+    public List<EmailOutbox> claimBatch(int batchSize) {
+        Date now = new Date();
+        List<EmailOutbox> emails = emailOutboxRepository.findClaimable(
+                List.of(EmailOutbox.Status.PENDING, EmailOutbox.Status.PROCESSING), now,
+                PageRequest.of(0, batchSize));
+        Date leaseEnd = new Date(now.getTime() + Duration.ofSeconds(leaseSeconds).toMillis());
+        for (EmailOutbox email : emails) {
+            email.setStatus(EmailOutbox.Status.PROCESSING);
+            email.setAttempts(email.getAttempts() + 1);
+            email.setNextAttemptAt(leaseEnd);
+        }
+        return emails;
+    }
+
+    @Transactional
+    // This method records the result of sending the claimed emails. The emails
+    // which are not present in the failures map were sent and the others are
+    // retried later with an increasing delay or marked as FAILED after the maximum
+    // number of attempts
+    public void recordResults(List<Long> emailIds, Map<Long, String> failures) {
+        Date now = new Date();
+        for (EmailOutbox email : emailOutboxRepository.findAllById(emailIds)) {
+            String error = failures.get(email.getId());
+            if (error == null) {
+                email.setStatus(EmailOutbox.Status.SENT);
+                email.setSentAt(now);
+                email.setLastError(null);
+            } else if (email.getAttempts() >= maxAttempts) {
+                email.setStatus(EmailOutbox.Status.FAILED);
+                email.setLastError(truncate(error));
+            } else {
+                email.setStatus(EmailOutbox.Status.PENDING);
+                email.setNextAttemptAt(new Date(now.getTime() + retryDelay(email.getAttempts()).toMillis()));
+                email.setLastError(truncate(error));
+            }
+        }
+    }
+
+    @Transactional
+    // This method puts back the claimed emails which were not sent because every
+    // mail sender reached its rate limit. They are not failures so the attempt
+    // which was counted when they were claimed is taken back
+    public void postpone(List<Long> emailIds, Duration delay) {
+        Date nextAttemptAt = new Date(System.currentTimeMillis() + delay.toMillis());
+        for (EmailOutbox email : emailOutboxRepository.findAllById(emailIds)) {
+            email.setStatus(EmailOutbox.Status.PENDING);
+            email.setAttempts(Math.max(0, email.getAttempts() - 1));
+            email.setNextAttemptAt(nextAttemptAt);
+        }
+    }
+
+    // This method returns the time to wait before the next attempt. The delay is
+    // doubled after every attempt so that an SMTP server which is down is not
+    // flooded with retries
+    private Duration retryDelay(int attempts) {
+        Duration delay = Duration.ofSeconds(retryDelaySeconds).multipliedBy(1L << Math.min(attempts - 1, 16));
+        return delay.compareTo(MAX_RETRY_DELAY) > 0 ? MAX_RETRY_DELAY : delay;
+    }
+
+    // This method cuts the error so that it fits in the last_error column
+    private String truncate(String error) {
+        return error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+
+}
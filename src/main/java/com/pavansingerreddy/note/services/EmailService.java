@@ -1,12 +1,23 @@
 package com.pavansingerreddy.note.services;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
 // @Service is a Spring annotation that marks this class as a service in the Spring application context.
 // This means that Spring will automatically create an instance of this class and manage it.
 @Service
@@ -14,81 +25,107 @@ import org.springframework.stereotype.Service;
 public class EmailService {
 
     // @Autowired is a Spring annotation for automatic dependency injection.
-    // Here, it's injecting an instance of JavaMailSender, which is a Spring
-    // interface for sending emails.
+    // Here, it's injecting the MailSenderPool which contains all the SMTP senders
+    // from the "mail.senders" list of the application.yml with their rate limits
     @Autowired
-    // If you have more than one bean of the same type and want to wire only one of
-    // them, you can use the @Qualifier annotation along with @Autowired to specify
-    // which exact bean will be wired.Here we get the bean with name "mailSender1"
-    // from the MailConfig.java file
-    @Qualifier("mailSender1")
-    private JavaMailSender mailSender1;
+    private MailSenderPool mailSenderPool;
 
-    @Autowired
-    // If you have more than one bean of the same type and want to wire only one of
-    // them, you can use the @Qualifier annotation along with @Autowired to specify
-    // which exact bean will be wired.Here we get the bean with name "mailSender2"
-    // from the MailConfig.java file
-    @Qualifier("mailSender2")
-    private JavaMailSender mailSender2;
-
-    // getting the username or email address of the mailSender1 object from the
-    // application.yml file
-    @Value("${mail.config1.username}")
-    private String fromEmail1;
+    // This method sends a batch of emails. It starts with the given mail number and
+    // when that sender has no capacity left or fails, the remaining messages are
+    // sent with the least loaded of the other senders. All the messages
+    // sent by a sender go over one pooled SMTP connection, which is also reused
+    // by the next batches instead of connecting once per email. It returns the
+    // messages which could not be sent with any sender together with the error of
+    // each of them and the messages which were not sent because every sender had
+    // reached its rate limit
+    public SendResult sendEmails(List<SimpleMailMessage> mailMessages, int mailNoToUseForSendingEmail) {
+        List<SimpleMailMessage> remaining = new ArrayList<>(mailMessages);
+        Map<SimpleMailMessage, Exception> lastErrors = new IdentityHashMap<>();
+        Set<Integer> triedMailNos = new HashSet<>();
+        while (!remaining.isEmpty()) {
+            Optional<MailSenderPool.Reservation> reservation = mailSenderPool.acquire(mailNoToUseForSendingEmail,
+                    triedMailNos, remaining.size());
+            if (reservation.isEmpty()) {
+                break;
+            }
+            MailSenderPool.PooledMailSender sender = reservation.get().getSender();
+            triedMailNos.add(sender.getMailNo());
+            List<SimpleMailMessage> batch = new ArrayList<>(remaining.subList(0, reservation.get().getPermits()));
+            List<SimpleMailMessage> notSent = new ArrayList<>(remaining.subList(batch.size(), remaining.size()));
+            Map<SimpleMailMessage, Exception> failedMessages = sendBatch(sender, batch);
+            for (SimpleMailMessage mailMessage : batch) {
+                Exception failure = failedMessages.get(mailMessage);
+                if (failure == null) {
+                    lastErrors.remove(mailMessage);
+                } else {
+                    // the failed messages are tried again with the next sender
+                    lastErrors.put(mailMessage, failure);
+                    notSent.add(mailMessage);
+                }
+            }
+            remaining = notSent;
+        }
+        Map<SimpleMailMessage, Exception> failedMessages = new IdentityHashMap<>();
+        List<SimpleMailMessage> rateLimitedMessages = new ArrayList<>();
+        for (SimpleMailMessage mailMessage : remaining) {
+            Exception failure = lastErrors.get(mailMessage);
+            if (failure != null) {
+                failedMessages.put(mailMessage, failure);
+            } else {
+                rateLimitedMessages.add(mailMessage);
+            }
+        }
+        return new SendResult(failedMessages, rateLimitedMessages, mailSenderPool.timeUntilAvailable());
+    }
 
-    // getting the username or email address of the mailSender2 object from the
-    // application.yml file
-    @Value("${mail.config2.username}")
-    private String fromEmail2;
+    // This method sends the messages over a single connection of the given sender
+    // and returns the messages which could not be sent
+    private Map<SimpleMailMessage, Exception> sendBatch(MailSenderPool.PooledMailSender sender,
+            List<SimpleMailMessage> batch) {
+        Map<SimpleMailMessage, Exception> failedMessages = new IdentityHashMap<>();
+        for (SimpleMailMessage mailMessage : batch) {
+            mailMessage.setFrom(sender.getFromEmail());
+        }
+        try {
+            sender.getJavaMailSender().send(batch.toArray(new SimpleMailMessage[0]));
+        } catch (MailSendException e) {
+            // the MailSendException contains the messages which failed with their
+            // exceptions. If it does not contain any message then the whole batch failed
+            // (for example because the connection could not be opened)
+            for (SimpleMailMessage mailMessage : batch) {
+                Exception failure = e.getFailedMessages().get(mailMessage);
+                if (failure != null || e.getFailedMessages().isEmpty()) {
+                    failedMessages.put(mailMessage, failure != null ? failure : e);
+                }
+            }
+        } catch (MailException e) {
+            for (SimpleMailMessage mailMessage : batch) {
+                failedMessages.put(mailMessage, e);
+            }
+        }
+        if (!failedMessages.isEmpty()) {
+            System.out.println("Failed to send " + failedMessages.size() + " of " + batch.size()
+                    + " emails using mail sender " + sender.getMailNo());
+        }
+        return failedMessages;
+    }
 
-    // This method is used to send an email. It takes the recipient's email address,
-    // email subject, and email body as parameters.
-    public boolean sendEmail(String toEmail, String subject, String body, int mailNoToUseForSendingEmail) {
+    // @Getter is a Lombok annotation to create the getters of all the fields
+    @Getter
+    // @AllArgsConstructor is a Lombok annotation to create a constructor with all
+    // the fields
+    @AllArgsConstructor
+    // SendResult contains the messages of a batch which were not sent
+    public static class SendResult {
 
-        // Creating a new instance of SimpleMailMessage which is a helper class for
-        // creating a JavaMail MimeMessage.
-        SimpleMailMessage mailMessage = new SimpleMailMessage();
-        // Setting the recipient's email address.
-        mailMessage.setTo(toEmail);
-        // Setting the body of the email.
-        mailMessage.setText(body);
-        // Setting the subject of the email.
-        mailMessage.setSubject(subject);
+        // the messages which failed with every sender that was tried, with the error of
+        // the last sender
+        private final Map<SimpleMailMessage, Exception> failedMessages;
+        // the messages which were not tried because every sender reached its rate limit
+        private final List<SimpleMailMessage> rateLimitedMessages;
+        // time after which a sender can send an email again
+        private final Duration retryAfter;
 
-        switch (mailNoToUseForSendingEmail) {
-            case 1:
-                // Sending the email using the first JavaMailSender instance.
-                // If the email is sent successfully, the method returns true.
-                // If there's an exception (email not sent), then we catch the exception and go
-                // to the next JavaMailSender instance and send the mail if every instance fails
-                // to send the email then we return false.
-                try {
-                    mailMessage.setFrom(fromEmail1);
-                    mailSender1.send(mailMessage);
-                    return true;
-                } catch (Exception e) {
-                    System.out.println("Failed to send email to " + toEmail + " using mail configuration 1");
-                    System.out.println(e);
-                }
-            case 2:
-                try {
-                    mailMessage.setFrom(fromEmail2);
-                    mailSender2.send(mailMessage);
-                    return true;
-                } catch (Exception e) {
-                    System.out.println("Failed to send email to " + toEmail + " using mail configuration 2");
-                    System.out.println(e);
-                }
-            default:
-                return false;
-        }
     }
 
 }
-
-// Note : when you add a 3rd new additional mail service provider in the
-// application.yml file then update this file and add add another case 3 in the
-// switch case statement which reflects the 3rd new mail configuration and also
-// update MailConfig file and DummyUserDetailsCreator files to reflect the new
-// mail changes
\ No newline at end of file
@@ -0,0 +1,143 @@
+package com.pavansingerreddy.note.services;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import com.pavansingerreddy.note.utils.TokenBucket;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// MailSenderPool contains all the SMTP senders of the application with the token
+// bucket of each of them. It chooses the sender for each email so that the
+// emails are spread over the senders which have capacity left, and adding a
+// sender in the application.yml raises the number of emails which can be sent.
+// The tokens are taken from the mail_sender_state table through the
+// MailSenderStateService, so all the instances of the application share the rate
+// limit of each sender. The bean is created by the MailConfig from the
+// "mail.senders" properties
+public class MailSenderPool {
+
+    // the senders in the order of the application.yml
+    private final List<PooledMailSender> senders;
+
+    // the service which takes the tokens of the senders from the database
+    private final MailSenderStateService mailSenderStateService;
+
+    // This constructor creates the pool from the given senders
+    public MailSenderPool(List<PooledMailSender> senders, MailSenderStateService mailSenderStateService) {
+        if (senders.isEmpty()) {
+            throw new IllegalArgumentException("At least one sender must be configured under mail.senders");
+        }
+        this.senders = List.copyOf(senders);
+        this.mailSenderStateService = mailSenderStateService;
+    }
+
+    // This method reserves a token of the least loaded sender which has a token
+    // left and returns the mail number of that sender. It is used when a new user
+    // registers so that the request is refused early if every sender is busy. The
+    // token is taken right away so that a burst of registrations cannot pass the
+    // check together, and it is used by the next email of the sender, which is
+    // usually the verification email of the new user
+    public Optional<Integer> reserveLeastLoadedSender() {
+        List<PooledMailSender> candidates = senders.stream()
+                .sorted(Comparator.comparingDouble(
+                        (PooledMailSender sender) -> sender.getTokenBucket().fillRatio()).reversed())
+                .toList();
+        for (PooledMailSender sender : candidates) {
+            if (mailSenderStateService.tryTake(sender.getMailNo(), sender.getTokenBucket(), 1) == 1) {
+                sender.getTokenBucket().addReserved();
+                return Optional.of(sender.getMailNo());
+            }
+        }
+        return Optional.empty();
+    }
+
+    // This method returns the time after which at least one sender can send an email
+    public Duration timeUntilAvailable() {
+        return senders.stream()
+                .map(sender -> sender.getTokenBucket().timeUntilNextToken())
+                .min(Comparator.naturalOrder())
+                .orElse(Duration.ZERO);
+    }
+
+    // This method takes up to wanted tokens from a sender which is not in the
+    // excluded mail numbers. The preferred sender is used if it has tokens left,
+    // otherwise the senders are tried from the least loaded one so that a busy or
+    // failing sender does not stop the emails. It returns an empty Optional if no
+    // sender has a token left. The tokens which were reserved for the sender are
+    // used before new tokens are taken
+    public Optional<Reservation> acquire(int preferredMailNo, Set<Integer> excludedMailNos, int wanted) {
+        List<PooledMailSender> candidates = senders.stream()
+                .filter(sender -> !excludedMailNos.contains(sender.getMailNo()))
+                .sorted(Comparator.comparing((PooledMailSender sender) -> sender.getMailNo() != preferredMailNo)
+                        .thenComparing(Comparator.comparingDouble(
+                                (PooledMailSender sender) -> sender.getTokenBucket().fillRatio()).reversed()))
+                .toList();
+        for (PooledMailSender sender : candidates) {
+            int granted = sender.getTokenBucket().takeReserved(wanted);
+            if (granted < wanted) {
+                granted += mailSenderStateService.tryTake(sender.getMailNo(), sender.getTokenBucket(),
+                        wanted - granted);
+            }
+            if (granted > 0) {
+                return Optional.of(new Reservation(sender, granted));
+            }
+        }
+        return Optional.empty();
+    }
+
+    // This method closes the SMTP connections of the senders which were not used
+    // for their idle timeout
+    public void closeIdleConnections() {
+        for (PooledMailSender sender : senders) {
+            sender.getJavaMailSender().closeIdleConnections();
+        }
+    }
+
+    // This method closes all the open SMTP connections. It is called when the
+    // application stops
+    public void close() {
+        for (PooledMailSender sender : senders) {
+            sender.getJavaMailSender().close();
+        }
+    }
+
+    // @Getter is a Lombok annotation to create the getters of all the fields
+    @Getter
+    // @AllArgsConstructor is a Lombok annotation to create a constructor with all
+    // the fields
+    @AllArgsConstructor
+    // PooledMailSender is a single SMTP sender of the pool
+    public static class PooledMailSender {
+
+        // number of the sender which is stored with the emails, starting from 1
+        private final int mailNo;
+        // the from address of the emails sent by this sender
+        private final String fromEmail;
+        // the JavaMailSender which sends the emails over its pooled SMTP connections
+        private final PooledJavaMailSender javaMailSender;
+        // the in-memory copy of the rate limit of this sender from the
+        // mail_sender_state table
+        private final TokenBucket tokenBucket;
+
+    }
+
+    // @Getter is a Lombok annotation to create the getters of all the fields
+    @Getter
+    // @AllArgsConstructor is a Lombok annotation to create a constructor with all
+    // the fields
+    @AllArgsConstructor
+    // Reservation is the sender which was chosen for some emails and the number of
+    // emails it may send now
+    public static class Reservation {
+
+        private final PooledMailSender sender;
+        private final int permits;
+
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.pavansingerreddy.note.services;
+
+import java.util.Date;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pavansingerreddy.note.config.MailSenderProperties;
+import com.pavansingerreddy.note.entity.MailSenderState;
+import com.pavansingerreddy.note.repository.MailSenderStateRepository;
+import com.pavansingerreddy.note.utils.TokenBucket;
+
+import jakarta.annotation.PostConstruct;
+
+// @Service is a Spring annotation that marks this class as a service in the Spring application context.
+@Service
+// MailSenderStateService keeps the token buckets of the mail senders in the
+// mail_sender_state table so that all the instances of the application share the
+// rate limit of each sender. The TokenBucket of a sender in the MailSenderPool is
+// the in-memory copy of its row. It is updated every time tokens are taken, and
+// as the other instances only take tokens the copy never has fewer tokens than
+// the row, so a sender whose copy is empty is skipped without a query
+public class MailSenderStateService {
+
+    // autowiring our MailSenderStateRepository so that the bean or instance of
+    // MailSenderStateRepository will be injected here by the spring IOC container
+    @Autowired
+    private MailSenderStateRepository mailSenderStateRepository;
+
+    // the "mail.senders" list of the application.yml which gives us the number of
+    // senders
+    @Autowired
+    private MailSenderProperties mailSenderProperties;
+
+    // the transaction manager is used to take the tokens in a transaction of its own
+    // which only holds the lock of the sender's row for a moment, and to run the
+    // startup work as the @Transactional annotation does not work in a
+    // @PostConstruct method
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // PostConstruct annotation runs this method once after the bean is created. It
+    // creates the row of every sender which does not have one yet with a full
+    // bucket. The senders keep their mail number so a row which already exists
+    // keeps the tokens the sender has used
+    @PostConstruct
+    void createMissingStates() {
+        for (int mailNo = 1; mailNo <= mailSenderProperties.getSenders().size(); mailNo++) {
+            int senderMailNo = mailNo;
+            try {
+                newTransaction().executeWithoutResult(status -> {
+                    if (!mailSenderStateRepository.existsById(senderMailNo)) {
+                        mailSenderStateRepository.save(new MailSenderState(senderMailNo, new Date()));
+                    }
+                });
+            } catch (DataIntegrityViolationException e) {
+                // another instance which started at the same time created the row
+            }
+        }
+    }
+
+    // This method takes up to wanted tokens of the given sender from its row and
+    // returns how many were taken, which is 0 if the sender has reached its rate
+    // limit. The row is locked while the tokens are taken so two requests or two
+    // instances never take the same token
+    public int tryTake(int mailNo, TokenBucket tokenBucket, int wanted) {
+        if (!tokenBucket.timeUntilNextToken().isZero()) {
+            return 0;
+        }
+        return newTransaction().execute(status -> {
+            MailSenderState state = mailSenderStateRepository.findForUpdate(mailNo)
+                    .orElseThrow(() -> new IllegalStateException("No mail_sender_state row for mail sender " + mailNo));
+            // starting from the tokens which are left in the row, as the other instances
+            // may have taken some of them
+            tokenBucket.setRefilledAt(state.getRefilledAt().getTime());
+            int taken = tokenBucket.tryTake(wanted);
+            if (taken > 0) {
+                // the change is written when the transaction commits
+                state.setRefilledAt(new Date(tokenBucket.getRefilledAt()));
+            }
+            return taken;
+        });
+    }
+
+    // This method returns a template for a new transaction which does not wait for
+    // the transaction of the caller, for example the registration of a user
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return transactionTemplate;
+    }
+
+}
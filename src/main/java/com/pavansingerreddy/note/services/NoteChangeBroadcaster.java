@@ -0,0 +1,263 @@
+package com.pavansingerreddy.note.services;
+
+import java.io.IOException;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.pavansingerreddy.note.dto.NoteChangeEventDto;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Component annotation tells Spring that this class is a component so that spring
+// creates a single bean of it when the application starts
+@Component
+// NoteChangeBroadcaster holds the Server-Sent Events connections of the devices
+// of the users which are connected to /api/notes/events and pushes the changes of
+// the notes of a user to all the devices of that user. Every connection has a
+// bounded buffer of events which is written to the device by the threads of the
+// noteEventsExecutor. If a slow device lets its buffer fill up the buffered events
+// are dropped and replaced by a single "resync" event which tells the device to
+// read its changes from /api/notes/changes, so a slow device never holds more than
+// buffer-size events in memory. The connections only live in the memory of this
+// instance of the application
+public class NoteChangeBroadcaster {
+
+    // the executor whose threads write the events to the devices
+    @Autowired
+    @Qualifier("noteEventsExecutor")
+    private ThreadPoolTaskExecutor noteEventsExecutor;
+
+    // the registry of the metrics which are published on /actuator/metrics
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // time after which a connection is closed so that the device connects again.
+    // The device reads the changes it missed from /api/notes/changes when it
+    // connects
+    @Value("${notes.events.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    // maximum number of events which wait to be written to a device
+    @Value("${notes.events.buffer-size:256}")
+    private int bufferSize;
+
+    // maximum number of connections of a user. When a device connects after the
+    // maximum is reached the oldest connection of the user is closed, because it is
+    // usually a device which went away without closing its connection
+    @Value("${notes.events.max-connections-per-user:10}")
+    private int maxConnectionsPerUser;
+
+    // the connections of each user by the id of the user, oldest first
+    private final Map<Long, Deque<Connection>> connections = new ConcurrentHashMap<>();
+
+    // counts the resync events which replaced the events of a slow device
+    private Counter resyncCounter;
+
+    // PostConstruct annotation runs this method once after the bean is created. It
+    // registers the number of open connections and the number of resync events as
+    // metrics
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("notes.events.connections", connections,
+                userConnections -> userConnections.values().stream().mapToInt(Deque::size).sum())
+                .description("Number of open Server-Sent Events connections")
+                .register(meterRegistry);
+        resyncCounter = Counter.builder("notes.events.resyncs")
+                .description("Number of times the events of a slow connection were replaced by a resync event")
+                .register(meterRegistry);
+    }
+
+    // This method opens a new connection for a device of the given user and returns
+    // its SseEmitter which the controller returns to spring
+    public SseEmitter connect(long userId) {
+        SseEmitter emitter = createEmitter();
+        Connection connection = new Connection(userId, emitter);
+        // removing the connection when it is completed, timed out or broken
+        emitter.onCompletion(connection::close);
+        emitter.onTimeout(connection::close);
+        emitter.onError(error -> connection.close());
+        // compute adds the connection while no other thread changes the connections of
+        // the user
+        Deque<Connection> userConnections = connections.compute(userId, (id, existing) -> {
+            Deque<Connection> deque = existing != null ? existing : new ConcurrentLinkedDeque<>();
+            deque.addLast(connection);
+            return deque;
+        });
+        // closing the oldest connections of the user over the maximum
+        while (userConnections.size() > maxConnectionsPerUser) {
+            Connection oldest = userConnections.peekFirst();
+            if (oldest == null || oldest == connection) {
+                break;
+            }
+            oldest.close();
+        }
+        // a first comment makes the response headers reach the device right away
+        connection.offer(SseEmitter.event().comment("connected"));
+        return emitter;
+    }
+
+    // This method creates the SseEmitter of a new connection which is closed after
+    // the timeout
+    SseEmitter createEmitter() {
+        return new SseEmitter(timeoutMs);
+    }
+
+    // This method puts the given change into the buffers of all the connections of
+    // the given user
+    public void publish(long userId, NoteChangeEventDto change) {
+        Deque<Connection> userConnections = connections.get(userId);
+        if (userConnections == null) {
+            return;
+        }
+        for (Connection connection : userConnections) {
+            connection.offerChange(change);
+        }
+    }
+
+    // Scheduled annotation runs this method every heartbeat-interval-ms. It sends a
+    // comment to every connection so that the proxies between the server and the
+    // devices don't close a connection which has no changes for a while, and so
+    // that the connections of devices which went away are found and closed
+    @Scheduled(fixedDelayString = "${notes.events.heartbeat-interval-ms:25000}", initialDelayString = "${notes.events.heartbeat-interval-ms:25000}")
+    public void sendHeartbeats() {
+        for (Deque<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                connection.offer(SseEmitter.event().comment("heartbeat"));
+            }
+        }
+    }
+
+    // PreDestroy annotation runs this method when the application stops. It closes
+    // all the connections so that the devices connect to another instance
+    @PreDestroy
+    void closeAll() {
+        for (Deque<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                connection.close();
+            }
+        }
+    }
+
+    // Connection is a single connected device with its buffer of events which are
+    // not written yet. At most one thread writes the events of a connection at a
+    // time, so the events reach the device in the order they were published
+    private final class Connection {
+
+        private final long userId;
+        private final SseEmitter emitter;
+        // the events which wait to be written to the device
+        private final BlockingQueue<SseEmitter.SseEventBuilder> buffer;
+        // true if events were dropped so a resync event has to be written before the
+        // next buffered event
+        private final AtomicBoolean resyncPending = new AtomicBoolean();
+        // true while a task of the executor writes the events of this connection
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // true after the connection is closed
+        private volatile boolean closed;
+
+        Connection(long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        // This method buffers a change event. If the buffer is full the device is too
+        // slow, so the buffered events are dropped and a resync event is sent instead
+        void offerChange(NoteChangeEventDto change) {
+            if (!buffer.offer(SseEmitter.event().name("change").data(change, MediaType.APPLICATION_JSON))) {
+                buffer.clear();
+                if (resyncPending.compareAndSet(false, true)) {
+                    resyncCounter.increment();
+                }
+            }
+            scheduleDrain();
+        }
+
+        // This method buffers an event which may be dropped if the buffer is full, like
+        // a heartbeat which is not needed while the buffer still has events to write
+        void offer(SseEmitter.SseEventBuilder event) {
+            buffer.offer(event);
+            scheduleDrain();
+        }
+
+        // This method submits a task which writes the buffered events unless a task is
+        // already writing them
+        private void scheduleDrain() {
+            if (closed || !draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                noteEventsExecutor.execute(this::drain);
+            } catch (TaskRejectedException e) {
+                // the events stay in the buffer until the next event or heartbeat
+                draining.set(false);
+            }
+        }
+
+        // This method writes the buffered events to the device until the buffer is
+        // empty
+        private void drain() {
+            try {
+                while (!closed) {
+                    SseEmitter.SseEventBuilder event = resyncPending.getAndSet(false)
+                            ? SseEmitter.event().name("resync").data("resync")
+                            : buffer.poll();
+                    if (event == null) {
+                        break;
+                    }
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // the device went away or the emitter was already completed
+                close();
+            } finally {
+                draining.set(false);
+            }
+            // an event which was buffered after the last poll but before draining was
+            // reset is written by a new task
+            if (!closed && (!buffer.isEmpty() || resyncPending.get())) {
+                scheduleDrain();
+            }
+        }
+
+        // This method removes the connection from the connections of its user and
+        // completes its response. It can be called more than once
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            buffer.clear();
+            connections.computeIfPresent(userId, (id, userConnections) -> {
+                userConnections.remove(this);
+                return userConnections.isEmpty() ? null : userConnections;
+            });
+            try {
+                emitter.complete();
+            } catch (IllegalStateException e) {
+                // the emitter was already completed
+            }
+        }
+
+    }
+
+}
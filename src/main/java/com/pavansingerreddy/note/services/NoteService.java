@@ -1,28 +1,64 @@
 package com.pavansingerreddy.note.services;
 
 import java.util.List;
+import java.util.function.Consumer;
 
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.pavansingerreddy.note.dto.NoteChangesDto;
+import com.pavansingerreddy.note.dto.NoteCursorPageDto;
 import com.pavansingerreddy.note.dto.NoteDto;
+import com.pavansingerreddy.note.dto.NoteOperationResultDto;
+import com.pavansingerreddy.note.dto.NoteSearchPageDto;
+import com.pavansingerreddy.note.dto.NoteSummaryDto;
 import com.pavansingerreddy.note.dto.PagableNoteDto;
+import com.pavansingerreddy.note.dto.PagableNoteSummaryDto;
+import com.pavansingerreddy.note.exception.InvalidCursorException;
 import com.pavansingerreddy.note.exception.NoteDoesNotExistsException;
 import com.pavansingerreddy.note.exception.UserNotFoundException;
 import com.pavansingerreddy.note.model.NoteModel;
+import com.pavansingerreddy.note.model.NoteOperationModel;
+import com.pavansingerreddy.note.model.UserPrincipal;
 
 public interface NoteService {
 
-    NoteDto createNewNote(NoteModel noteModel,String userEmail) throws UserNotFoundException;
+    NoteDto createNewNote(NoteModel noteModel, UserPrincipal userPrincipal) throws UserNotFoundException;
+
+    NoteDto getASpecificNote(UserPrincipal userPrincipal, Long noteId) throws NoteDoesNotExistsException;
+
+    List<NoteDto> getAllNotes(UserPrincipal userPrincipal) throws NoteDoesNotExistsException;
+
+    Long getUserId(UserPrincipal userPrincipal) throws NoteDoesNotExistsException;
+
+    void streamAllNotes(Long userId, Consumer<NoteDto> noteConsumer);
+
+    NoteDto updateSpecificNote(UserPrincipal userPrincipal, Long noteId, NoteModel noteModel) throws NoteDoesNotExistsException;
+
+    NoteDto deleteASpecificNote(UserPrincipal userPrincipal, Long noteId) throws NoteDoesNotExistsException;
+
+    NoteSearchPageDto searchNotes(UserPrincipal userPrincipal, String searchTerm, int page, int size)
+            throws NoteDoesNotExistsException;
+
+    List<PagableNoteDto> getPagedNotes(UserPrincipal userPrincipal, int page, int size) throws NoteDoesNotExistsException;
+
+    NoteCursorPageDto<NoteDto> getNotesAfterCursor(UserPrincipal userPrincipal, String cursor, int size)
+            throws NoteDoesNotExistsException, InvalidCursorException;
 
-    NoteDto getASpecificNote(String userEmail, Long noteId) throws NoteDoesNotExistsException;
+    void streamAllNoteSummaries(Long userId, Consumer<NoteSummaryDto> noteSummaryConsumer);
 
-    List<NoteDto> getAllNotes(String userEmail) throws NoteDoesNotExistsException;
+    List<PagableNoteSummaryDto> getPagedNoteSummaries(UserPrincipal userPrincipal, int page, int size)
+            throws NoteDoesNotExistsException;
 
-    NoteDto updateSpecificNote(String userEmail, Long noteId, NoteModel noteModel) throws NoteDoesNotExistsException;
+    List<NoteOperationResultDto> applyBatch(UserPrincipal userPrincipal, List<NoteOperationModel> operations)
+            throws UserNotFoundException;
 
-    NoteDto deleteASpecificNote(String userEmail, Long noteId) throws NoteDoesNotExistsException;
+    NoteCursorPageDto<NoteSummaryDto> getNoteSummariesAfterCursor(UserPrincipal userPrincipal, String cursor, int size)
+            throws NoteDoesNotExistsException, InvalidCursorException;
 
-    List<NoteDto> searchNotes(String userEmail, String searchTerm) throws NoteDoesNotExistsException;
+    NoteChangesDto getNoteChanges(UserPrincipal userPrincipal, String since, int size)
+            throws NoteDoesNotExistsException, InvalidCursorException;
 
-    List<PagableNoteDto> getPagedNotes(String userEmail, int page, int size) throws NoteDoesNotExistsException;
+    SseEmitter subscribeToNoteChanges(UserPrincipal userPrincipal) throws UserNotFoundException;
 
     
 }
@@ -3,28 +3,66 @@ package com.pavansingerreddy.note.services;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.pavansingerreddy.note.dto.NoteChangeDto;
+import com.pavansingerreddy.note.dto.NoteChangeEventDto;
+import com.pavansingerreddy.note.dto.NoteChangesDto;
+import com.pavansingerreddy.note.dto.NoteCursorPageDto;
 import com.pavansingerreddy.note.dto.NoteDto;
+import com.pavansingerreddy.note.dto.NoteOperationResultDto;
+import com.pavansingerreddy.note.dto.NoteSearchHitDto;
+import com.pavansingerreddy.note.dto.NoteSearchPageDto;
+import com.pavansingerreddy.note.dto.NoteSummaryDto;
 import com.pavansingerreddy.note.dto.PagableNoteDto;
+import com.pavansingerreddy.note.dto.PagableNoteSummaryDto;
 import com.pavansingerreddy.note.entity.Note;
+import com.pavansingerreddy.note.entity.NoteSyncState;
+import com.pavansingerreddy.note.entity.NoteTombstone;
 import com.pavansingerreddy.note.entity.Users;
+import com.pavansingerreddy.note.events.event_publisher.NoteChangedEvent;
+import com.pavansingerreddy.note.exception.InvalidCursorException;
 import com.pavansingerreddy.note.exception.NoteDoesNotExistsException;
 import com.pavansingerreddy.note.exception.UserNotFoundException;
 import com.pavansingerreddy.note.model.NoteModel;
+import com.pavansingerreddy.note.model.NoteOperationModel;
+import com.pavansingerreddy.note.model.UserPrincipal;
 import com.pavansingerreddy.note.repository.NoteRepository;
+import com.pavansingerreddy.note.repository.NoteSummary;
+import com.pavansingerreddy.note.repository.NoteTombstoneRepository;
 import com.pavansingerreddy.note.repository.UserRepository;
+import com.pavansingerreddy.note.search.NoteSearch;
+import com.pavansingerreddy.note.search.NoteSearchIndex;
+import com.pavansingerreddy.note.search.NoteSearchResult;
+import com.pavansingerreddy.note.search.NoteTokenizer;
 import com.pavansingerreddy.note.utils.DTOConversionUtil;
+import com.pavansingerreddy.note.utils.NoteChangeCursor;
+import com.pavansingerreddy.note.utils.NoteCursor;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
 
 @Service
 @Transactional
@@ -38,11 +76,70 @@ public class NoteServiceImplementation implements NoteService {
     // UserRepository will be injected here by the spring IOC container
     @Autowired
     UserRepository userRepository;
+    // autowiring our NoteTombstoneRepository so that the bean or instance of
+    // NoteTombstoneRepository will be injected here by the spring IOC container
+    @Autowired
+    NoteTombstoneRepository noteTombstoneRepository;
+    // autowiring the NoteChangeBroadcaster which holds the Server-Sent Events
+    // connections of the devices of the users
+    @Autowired
+    NoteChangeBroadcaster noteChangeBroadcaster;
+    // ApplicationEventPublisher is used for publishing the changes of the notes
+    // which are pushed to the devices of the user after the transaction commits
+    @Autowired
+    ApplicationEventPublisher publisher;
+
+    // autowiring the NoteSearch of the active database profile which searches the
+    // notes of a user
+    @Autowired
+    NoteSearch noteSearch;
+
+    // the maximum number of notes a search returns over all its pages and up to
+    // which the matching notes are counted, so that a broad search term like a
+    // single letter cannot make the database rank and count all the notes of the
+    // user
+    @Value("${notes.search.max-results:1000}")
+    int searchMaxResults;
+
+    // the maximum number of notes in a single page of the search results. A bigger
+    // requested page size is reduced to it
+    @Value("${notes.search.max-page-size:100}")
+    int searchMaxPageSize;
+
+    // the maximum number of characters of the content which a search result shows
+    // around the first matches of the search term
+    @Value("${notes.search.snippet-length:160}")
+    int searchSnippetLength;
+
+    // the maximum number of operations of a batch request so that a single request
+    // cannot hold the transaction and the database rows for too long
+    @Value("${notes.batch.max-operations:500}")
+    int batchMaxOperations;
+
+    // the maximum number of notes in a single page of the cursor pagination. A
+    // bigger requested page size is reduced to it so that a single request cannot
+    // read all the notes of the user
+    @Value("${notes.pagination.max-page-size:100}")
+    int paginationMaxPageSize;
+
+    // the maximum number of changes in a single page of the sync api. A bigger
+    // requested page size is reduced to it
+    @Value("${notes.sync.max-page-size:500}")
+    int syncMaxPageSize;
+
+    // autowiring our NoteSearchIndex which is the in memory inverted index of the
+    // notes of the users which is used for searching the notes
+    @Autowired
+    NoteSearchIndex noteSearchIndex;
+    // The EntityManager of the current transaction which is used for detaching the
+    // streamed notes so that they don't pile up in the persistence context
+    @PersistenceContext
+    EntityManager entityManager;
 
     @Override
     // This method creates a new note by taking the note model which contains note
     // details and the user email as it's parameters
-    public NoteDto createNewNote(NoteModel noteModel, String userEmail) throws UserNotFoundException {
+    public NoteDto createNewNote(NoteModel noteModel, UserPrincipal userPrincipal) throws UserNotFoundException {
 
         // creating a new note
         Note note = new Note();
@@ -53,19 +150,26 @@ public class NoteServiceImplementation implements NoteService {
         // setting current time as the note updated at time.because this note is created
         // just now so it is also updated just now
         note.setUpdatedAt(Date.from(Instant.now()));
-        // getting the optional user based on the userEmail string. we
-        // want the optional user because it is easy to check if the
+        // getting the optional id of the authenticated user. we
+        // want the optional user id because it is easy to check if the
         // user exists or not and also it does not have null values in
         // it
-        Optional<Users> user = userRepository.findByEmail(userEmail);
+        Optional<Long> userId = findUserId(userPrincipal);
+        // the user id of the jwt stays valid after the user is deleted, so we load the
+        // user to check that it still exists. The user is usually served from the
+        // second level cache so this does not cost a query, and a deleted user gets
+        // the UserNotFoundException instead of a foreign key violation
+        Optional<Users> user = userId.flatMap(userRepository::findById);
         // checking if the user is present or not if the user is present then we set the
-        // user of the note to the user who's email is passed to us as the parameter and
-        // then saving the note and after that returning the noteDto by converting note
-        // to
-        // noteDto
+        // user of the note and then saving the note and after that returning the
+        // noteDto by converting note to noteDto
         if (user.isPresent()) {
             note.setUser(user.get());
+            note.setChangeSequence(nextChangeSequence(userId.get()));
             noteRepository.save(note);
+            // adding the new note to the search index of the user
+            noteSearchIndex.onNoteSaved(note);
+            publishChange(note);
             return DTOConversionUtil.noteToNoteDTO(note);
         }
 
@@ -77,31 +181,17 @@ public class NoteServiceImplementation implements NoteService {
     @Override
     // This method is used to get a specific note using the user's email and the
     // associated note Id of the user
-    public NoteDto getASpecificNote(String userEmail, Long noteId) throws NoteDoesNotExistsException {
-        // getting the optional Note based on the noteId. we
-        // want the optional Note because it is easy to check if the
-        // Note exists or not and also it does not have null values in
-        // it
-        Optional<Note> optionalNote = noteRepository.findById(noteId);
-        // getting the optional User based on the userEmail string. we
-        // want the optional User because it is easy to check if the
-        // User exists or not and also it does not have null values in
-        // it
-        Optional<Users> optionalUser = userRepository.findByEmail(userEmail);
-
-        // if the note is present and the user is also present then it get's the note
-        // and user from the optional note and optional user and after that it checks if
-        // the note's user id is equal to the given user's id
-        if (optionalNote.isPresent() && optionalUser.isPresent()) {
+    public NoteDto getASpecificNote(UserPrincipal userPrincipal, Long noteId) throws NoteDoesNotExistsException {
+        // getting the optional Note based on the noteId and the id of the
+        // authenticated user. we want the optional Note because it is easy to check if
+        // the Note exists or not and also it does not have null values in it. The note
+        // is only found if it belongs to the user so a single query checks both
+        Optional<Note> optionalNote = findNoteOfUser(userPrincipal, noteId);
 
-            Note note = optionalNote.get();
-            Users user = optionalUser.get();
-            // checks if the note's user id is equal to the given user's id
-            if (note.getUser().getUserId() == user.getUserId()) {
-                // if the note is associated with the given user then we return the note Dto by
-                // converting note to note Dto
-                return DTOConversionUtil.noteToNoteDTO(note);
-            }
+        // if the note is present then it belongs to the given user and we return the
+        // note Dto by converting note to note Dto
+        if (optionalNote.isPresent()) {
+            return DTOConversionUtil.noteToNoteDTO(optionalNote.get());
         }
 
         // if the note or user does not exists with the given parameters then we throw
@@ -115,18 +205,16 @@ public class NoteServiceImplementation implements NoteService {
     // email. It takes the user's email as a parameter. It returns a list of NoteDto
     // objects representing the notes. If no notes are found, it throws a
     // NoteDoesNotExistsException.
-    public List<NoteDto> getAllNotes(String userEmail) throws NoteDoesNotExistsException {
-
-        // Call a method in userRepository to find the User object associated with the
-        // email. The method returns an Optional, which can either contain the User
-        // object (if found) or be empty (if not found).
-        Optional<Users> optionalUser = userRepository.findByEmail(userEmail);
-        // Check if the Optional contains a User object.
-        if (optionalUser.isPresent()) {
-            // Get the User object from the Optional.
-            Users user = optionalUser.get();
+    public List<NoteDto> getAllNotes(UserPrincipal userPrincipal) throws NoteDoesNotExistsException {
+
+        // Call a method to find the id of the authenticated user. The method returns an
+        // Optional, which can either contain the user id (if found) or be empty (if
+        // not found).
+        Optional<Long> optionalUserId = findUserId(userPrincipal);
+        // Check if the Optional contains a user id.
+        if (optionalUserId.isPresent()) {
             // Get the list of Note objects associated with the user.
-            List<Note> notes = user.getNotes();
+            List<Note> notes = noteRepository.findByUser_UserId(optionalUserId.get());
             // Check if the list of notes is not null.
             if (notes != null) {
                 // Create a new list to hold the NoteDto objects.
@@ -146,39 +234,63 @@ public class NoteServiceImplementation implements NoteService {
     }
 
     @Override
-    // This method checks if the user corresponding to the email and the note
-    // corresponding to the noteId is present or not if they are present then it
-    // checks if the given note's user id is the same as the given user's user id if
-    // they both match then the note will be updated with the given note model
-    public NoteDto updateSpecificNote(String userEmail, Long noteId, NoteModel noteModel)
+    // This method returns the id of the authenticated user. It is used by the
+    // streaming endpoints which have to find the user before the response is
+    // started, because an exception thrown while the notes are written can no
+    // longer be returned as an error response. If the user is not found it throws a
+    // NoteDoesNotExistsException
+    public Long getUserId(UserPrincipal userPrincipal) throws NoteDoesNotExistsException {
+        return findUserId(userPrincipal).orElseThrow(
+                () -> new NoteDoesNotExistsException("Note does not exists for the user and NoteId you have provided"));
+    }
+
+    @Override
+    // The transaction is read only because we only read the notes. The stream of
+    // notes must be read inside a transaction as the database keeps the cursor of
+    // the result open until the stream is closed
+    @Transactional(readOnly = true)
+    // This method reads all the notes of the user with the given id one by one from
+    // the database and passes each note as a NoteDto to the given noteConsumer
+    // (which writes it to the response). Unlike getAllNotes it never holds all the
+    // notes of the user in memory so the memory used by a request does not depend
+    // on how many notes the user has.
+    public void streamAllNotes(Long userId, Consumer<NoteDto> noteConsumer) {
+        // streaming the notes of the user.The try with resources block closes the
+        // stream and the database cursor behind it after all the notes are read
+        try (Stream<Note> notes = noteRepository.streamByUserId(userId)) {
+            notes.forEach(note -> {
+                // converting the note to the NoteDto and passing it to the consumer
+                noteConsumer.accept(DTOConversionUtil.noteToNoteDTO(note));
+                // detaching the note from the persistence context so that it can be garbage
+                // collected after it is written
+                entityManager.detach(note);
+            });
+        }
+    }
+
+    @Override
+    // This method finds the note corresponding to the noteId which belongs to the
+    // authenticated user and if it is present then the note will be updated with
+    // the given note model
+    public NoteDto updateSpecificNote(UserPrincipal userPrincipal, Long noteId, NoteModel noteModel)
             throws NoteDoesNotExistsException {
-        // getting the optional Note based on the noteId. we
-        // want the optional Note because it is easy to check if the
-        // Note exists or not and also it does not have null values in
-        // it
-        Optional<Note> optionalNote = noteRepository.findById(noteId);
-        // getting the optional User based on the userEmail string. we
-        // want the optional User because it is easy to check if the
-        // User exists or not and also it does not have null values in
-        // it
-        Optional<Users> optionalUser = userRepository.findByEmail(userEmail);
+        // getting the optional Note based on the noteId and the id of the
+        // authenticated user. The note is only found if it belongs to the user
+        Optional<Note> optionalNote = findNoteOfUser(userPrincipal, noteId);
 
-        // if the note is present and the user is also present then it get's the note
-        // and user from the optional note and optional user and after that it checks if
-        // the note's user id is equal to the given user's id
-        if (optionalNote.isPresent() && optionalUser.isPresent()) {
-            Note note = optionalNote.get();
-            Users user = optionalUser.get();
-            // checks if the note's user id is equal to the given user's id
-            if (note.getUser().getUserId() == user.getUserId()) {
-                // if the note belongs to a particular user then we copy the details from note
-                // model to the note entity and then we also update the time at which this note
-                // has modified and save that to the database and return the noteDto to the user
-                note = DTOConversionUtil.noteModelToNote(noteModel, note);
-                note.setUpdatedAt(Date.from(Instant.now()));
-                noteRepository.save(note);
-                return DTOConversionUtil.noteToNoteDTO(note);
-            }
+        // if the note is present then it belongs to the given user
+        if (optionalNote.isPresent()) {
+            // we copy the details from note model to the note entity and then we also
+            // update the time at which this note has modified. The note is managed by the
+            // current transaction so the changes are written with a single UPDATE when the
+            // transaction commits and we return the noteDto to the user
+            Note note = DTOConversionUtil.noteModelToNote(noteModel, optionalNote.get());
+            note.setUpdatedAt(Date.from(Instant.now()));
+            note.setChangeSequence(nextChangeSequence(note.getUser().getUserId()));
+            // updating the tokens of the note in the search index of the user
+            noteSearchIndex.onNoteSaved(note);
+            publishChange(note);
+            return DTOConversionUtil.noteToNoteDTO(note);
         }
         // if the note or user is not present and also if the note does not belongs to
         // the given user then we throw an exception
@@ -186,34 +298,24 @@ public class NoteServiceImplementation implements NoteService {
     }
 
     @Override
-    // This method checks if the user corresponding to the email and the note
-    // corresponding to the noteId is present or not if they are present then it
-    // checks if the given note's user id is the same as the given user's user id if
-    // they both match then the note will be deleted
-    public NoteDto deleteASpecificNote(String userEmail, Long noteId) throws NoteDoesNotExistsException {
-        // getting the optional Note based on the noteId. we
-        // want the optional Note because it is easy to check if the
-        // Note exists or not and also it does not have null values in
-        // it
-        Optional<Note> optionalNote = noteRepository.findById(noteId);
-        // getting the optional User based on the userEmail string. we
-        // want the optional User because it is easy to check if the
-        // User exists or not and also it does not have null values in
-        // it
-        Optional<Users> optionalUser = userRepository.findByEmail(userEmail);
-        // if the note is present and the user is also present then it get's the note
-        // and user from the optional note and optional user and after that it checks if
-        // the note's user id is equal to the given user's id
-        if (optionalNote.isPresent() && optionalUser.isPresent()) {
+    // This method finds the note corresponding to the noteId which belongs to the
+    // authenticated user and if it is present then the note will be deleted
+    public NoteDto deleteASpecificNote(UserPrincipal userPrincipal, Long noteId) throws NoteDoesNotExistsException {
+        // getting the optional Note based on the noteId and the id of the
+        // authenticated user. The note is only found if it belongs to the user. We
+        // still read the note before deleting it because the deleted note is returned
+        // to the user
+        Optional<Note> optionalNote = findNoteOfUser(userPrincipal, noteId);
+        // if the note is present then it belongs to the given user
+        if (optionalNote.isPresent()) {
             Note note = optionalNote.get();
-            Users user = optionalUser.get();
-            // checks if the note's user id is equal to the given user's id
-            if (note.getUser().getUserId() == user.getUserId()) {
-                // if they match then we delete the associated note and return the deleted note
-                // dto
-                noteRepository.delete(note);
-                return DTOConversionUtil.noteToNoteDTO(note);
-            }
+            // we delete the note, leave a tombstone for the sync clients and return the
+            // deleted note dto
+            noteRepository.delete(note);
+            long changeSequence = addTombstone(note.getUser().getUserId(), note.getNoteId());
+            // removing the deleted note from the search index of the user
+            noteSearchIndex.onNoteDeleted(note.getUser().getUserId(), note.getNoteId(), changeSequence);
+            return DTOConversionUtil.noteToNoteDTO(note);
         }
         // if the note or user is not present and also if the note does not belongs to
         // the given user then we throw an exception
@@ -221,48 +323,177 @@ public class NoteServiceImplementation implements NoteService {
 
     }
 
+    @Override
+    // This method applies the create, update and delete operations of a batch
+    // request in the given order in the transaction of this method. The notes which
+    // are updated or deleted are read with a single query which also checks that
+    // they belong to the user. The changes are written when the transaction
+    // commits, and as the JDBC batching of Hibernate is enabled in the
+    // application.yml the UPDATE and DELETE statements (and the INSERT statements
+    // of the contents) are sent to the database in batches instead of one by one.
+    // An operation which is invalid or whose note is not found is skipped and
+    // reported in its result, the other operations are still applied
+    public List<NoteOperationResultDto> applyBatch(UserPrincipal userPrincipal, List<NoteOperationModel> operations)
+            throws UserNotFoundException {
+        // the batch must not have more operations than the maximum
+        if (operations.size() > batchMaxOperations) {
+            throw new IllegalArgumentException("A batch must not have more than " + batchMaxOperations + " operations");
+        }
+        // getting the authenticated user. The user is loaded (usually from the second
+        // level cache) because the user id of the jwt stays valid after the user is
+        // deleted, and the created notes would then violate the foreign key
+        Optional<Users> optionalUser = findUserId(userPrincipal).flatMap(userRepository::findById);
+        // if the user is not present then we throw UserNotFoundException
+        if (!optionalUser.isPresent()) {
+            throw new UserNotFoundException("The user does not exists to create a note for that user");
+        }
+        Users user = optionalUser.get();
+        Long userId = user.getUserId();
+        // reading all the notes which are updated or deleted by the batch with one
+        // query. A note which is not in the map does not exist or belongs to another
+        // user
+        Set<Long> noteIds = operations.stream()
+                .filter(operation -> operation.getType() != NoteOperationModel.Type.CREATE)
+                .map(NoteOperationModel::getNoteId)
+                .filter(noteId -> noteId != null)
+                .collect(Collectors.toSet());
+        Map<Long, Note> notesOfUser = noteIds.isEmpty() ? new HashMap<>()
+                : noteRepository.findAllOfUserByIds(userId, noteIds).stream()
+                        .collect(Collectors.toMap(Note::getNoteId, Function.identity()));
+        // all the created and updated notes get the same updated at time
+        Date now = Date.from(Instant.now());
+        List<NoteOperationResultDto> results = new ArrayList<>();
+        for (int index = 0; index < operations.size(); index++) {
+            NoteOperationModel operation = operations.get(index);
+            NoteOperationModel.Type type = operation.getType();
+            Long noteId = operation.getNoteId();
+            switch (type) {
+                case CREATE -> {
+                    // a created note needs a title and a content like the create endpoint
+                    if (operation.getTitle() == null || operation.getTitle().isBlank() || operation.getContent() == null) {
+                        results.add(new NoteOperationResultDto(index, type, NoteOperationResultDto.Status.INVALID, null,
+                                null, "Note Title must not be empty and note content must not be null"));
+                        continue;
+                    }
+                    Note note = new Note();
+                    note.setTitle(operation.getTitle());
+                    note.setContent(operation.getContent());
+                    note.setCreatedAt(now);
+                    note.setUpdatedAt(now);
+                    note.setUser(user);
+                    note.setChangeSequence(nextChangeSequence(userId));
+                    entityManager.persist(note);
+                    // adding the new note to the search index of the user
+                    noteSearchIndex.onNoteSaved(note);
+                    publishChange(note);
+                    results.add(new NoteOperationResultDto(index, type, NoteOperationResultDto.Status.OK,
+                            note.getNoteId(), now, null));
+                }
+                case UPDATE -> {
+                    // an updated note needs its id and a new title or content, and the new title
+                    // must not be empty
+                    if (noteId == null || (operation.getTitle() == null && operation.getContent() == null)
+                            || (operation.getTitle() != null && operation.getTitle().isBlank())) {
+                        results.add(new NoteOperationResultDto(index, type, NoteOperationResultDto.Status.INVALID,
+                                noteId, null, "Note id and a non empty title or a content must be given"));
+                        continue;
+                    }
+                    Note note = notesOfUser.get(noteId);
+                    if (note == null) {
+                        results.add(new NoteOperationResultDto(index, type, NoteOperationResultDto.Status.NOT_FOUND,
+                                noteId, null, "Note does not exists for the user and NoteId you have provided"));
+                        continue;
+                    }
+                    // the note is managed by the transaction so the change is written by an
+                    // UPDATE of the batch when the transaction commits
+                    DTOConversionUtil.noteModelToNote(new NoteModel(operation.getTitle(), operation.getContent()), note);
+                    note.setUpdatedAt(now);
+                    note.setChangeSequence(nextChangeSequence(userId));
+                    // updating the tokens of the note in the search index of the user
+                    noteSearchIndex.onNoteSaved(note);
+                    publishChange(note);
+                    results.add(new NoteOperationResultDto(index, type, NoteOperationResultDto.Status.OK, noteId, now,
+                            null));
+                }
+                case DELETE -> {
+                    // removing the note from the map so that a later operation of the batch
+                    // does not find the deleted note
+                    Note note = noteId != null ? notesOfUser.remove(noteId) : null;
+                    if (note == null) {
+                        results.add(new NoteOperationResultDto(index, type, NoteOperationResultDto.Status.NOT_FOUND,
+                                noteId, null, "Note does not exists for the user and NoteId you have provided"));
+                        continue;
+                    }
+                    // the note and its content are deleted by DELETE statements of the batch
+                    // when the transaction commits
+                    entityManager.remove(note);
+                    long changeSequence = addTombstone(userId, noteId);
+                    // removing the deleted note from the search index of the user
+                    noteSearchIndex.onNoteDeleted(userId, noteId, changeSequence);
+                    results.add(new NoteOperationResultDto(index, type, NoteOperationResultDto.Status.OK, noteId, null,
+                            null));
+                }
+            }
+        }
+        return results;
+    }
+
     @Override
     // This method searches for the given search term in the user's object which is
-    // corresponding to the given userEmail.It searches for the search term in the
-    // user's note's title and also it's content and returns the corresponding notes
-    // which matches the search term
-    public List<NoteDto> searchNotes(String userEmail, String searchTerm) throws NoteDoesNotExistsException {
-        // getting the optional User based on the userEmail string. we
-        // want the optional User because it is easy to check if the
+    // corresponding to the given userPrincipal.It searches for the search term in the
+    // user's note's title and also it's content and returns the requested page of the
+    // notes which match the search term with the most relevant note first, together
+    // with the number of matching notes. Only the first searchMaxResults notes can be
+    // paged through, a page after them is empty
+    public NoteSearchPageDto searchNotes(UserPrincipal userPrincipal, String searchTerm, int page, int size)
+            throws NoteDoesNotExistsException {
+        // the page number cannot be negative and the page size must be at least one
+        if (page < 0 || size < 1) {
+            throw new IllegalArgumentException("Page must not be negative and page size must be greater than zero");
+        }
+        // a bigger page size than the maximum is reduced to the maximum
+        size = Math.min(size, searchMaxPageSize);
+        // getting the optional id of the authenticated user. we
+        // want the optional user id because it is easy to check if the
         // User exists or not and also it does not have null values in
         // it
-        Optional<Users> optionalUser = userRepository.findByEmail(userEmail);
-        // checks if the optional user is present or not
-                if (optionalUser.isPresent()) {
-            // if the optional user is present then we get the user object from the optional
-            // user
-            Users user = optionalUser.get();
-            // we also get the user's id from the user's object
-            Long userId = user.getUserId();
-            // we search for the corresponding notes related to the given user id and the
-            // given search term.we search in the note's title and the note's content with
-            // the given search term if any note found which matches the search term in
-            // note's title or note's content related to the given user we return the notes
-            List<Note> notes = noteRepository.search(userId, searchTerm);
-            // checking if the notes which match our search term is not null
-            if (notes != null) {
+        Optional<Long> optionalUserId = findUserId(userPrincipal);
+        // checks if the optional user id is present or not
+        if (optionalUserId.isPresent()) {
+            // if the optional user id is present then we get the user's id from it
+            Long userId = optionalUserId.get();
+            // the offset of the page and the number of notes which can still be returned
+            // before the maximum number of results is reached. The offset is calculated
+            // as a long so that a huge page number cannot overflow
+            long offset = (long) page * size;
+            int limit = (int) Math.max(0, Math.min(size, searchMaxResults - offset));
+            // the NoteSearch of the active database profile returns the page of the notes
+            // whose title or content match the search term with the most relevant note
+            // first. It uses the full text index of MySQL or PostgreSQL and the in memory
+            // search index with the LIKE query as the fallback on other databases. A page
+            // after the maximum number of results only counts the matching notes
+            NoteSearchResult result = noteSearch.search(userId, searchTerm,
+                    (int) Math.min(offset, searchMaxResults), limit, searchMaxResults);
 
-                // creating a list of NoteDto
-                List<NoteDto> noteDtos = new ArrayList<>();
-                // iterating the notes which matches our search term and then converting the
-                // note to noteDto object in the map method and after that we are adding that
-                // noteDto's to the list of noteDtos object in the forEach method
-                notes.stream()
-                        .map(DTOConversionUtil::noteToNoteDTO)
-                        .forEach(noteDtos::add);
-
-                // finally we are returning the noteDto's list
-                return noteDtos;
+            // the terms which are highlighted in the results are the tokens of the search
+            // term, or the whole search term if it has no token like for the LIKE query
+            List<String> terms = NoteTokenizer.tokenizeQuery(searchTerm);
+            if (terms.isEmpty()) {
+                terms = List.of(searchTerm);
             }
+            final List<String> highlightedTerms = terms;
+            // converting the notes of the page to noteSearchHitDto objects which only
+            // contain a snippet of the content instead of the whole content
+            List<NoteSearchHitDto> hitDtos = result.getHits().stream()
+                    .map(hit -> DTOConversionUtil.noteSearchHitToNoteSearchHitDto(hit, highlightedTerms,
+                            searchSnippetLength))
+                    .toList();
+
+            // finally we are returning the page with the number of matching notes
+            return new NoteSearchPageDto(hitDtos, page, size, result.getTotalHits(), result.isTotalHitsExact());
         }
 
-        // if the user is not present for the given email or if there exists no notes
-        // for the given search term for the particular user then we throw an exception
+        // if the user is not present for the given email then we throw an exception
         throw new NoteDoesNotExistsException("Note does not exists for the user and NoteId you have provided");
     }
 
@@ -271,17 +502,16 @@ public class NoteServiceImplementation implements NoteService {
     // their email. It takes the user's email, the page number, and the page size as
     // parameters. It returns a list of PagableNoteDto objects representing the
     // notes. If no notes are found, it throws a NoteDoesNotExistsException.
-    public List<PagableNoteDto> getPagedNotes(String userEmail, int page, int size) throws NoteDoesNotExistsException {
-        // Call a method in userRepository to find the User object associated with the
-        // email.The method returns an Optional, which can either contain the User
-        // object (if found) or be empty (if not found).
-        Optional<Users> optionalUser = userRepository.findByEmail(userEmail);
-        // Check if the Optional contains a User object.
-        if (optionalUser.isPresent()) {
-            // Get the User object from the Optional.
-            Users user = optionalUser.get();
+    public List<PagableNoteDto> getPagedNotes(UserPrincipal userPrincipal, int page, int size)
+            throws NoteDoesNotExistsException {
+        // Call a method to find the id of the authenticated user.The method returns an
+        // Optional, which can either contain the user id (if found) or be empty (if
+        // not found).
+        Optional<Long> optionalUserId = findUserId(userPrincipal);
+        // Check if the Optional contains a user id.
+        if (optionalUserId.isPresent()) {
             // Get the user's ID.
-            Long userId = user.getUserId();
+            Long userId = optionalUserId.get();
             // Create a Pageable object with the specified page number, size, and sort
             // order.The notes will be sorted by the "updatedAt" field in descending
             // order.so the latest updated notes comes first
@@ -314,4 +544,297 @@ public class NoteServiceImplementation implements NoteService {
 
     }
 
+    @Override
+    // This method retrieves a page of notes of the user using cursor (keyset)
+    // pagination. Instead of skipping page * size rows and counting all the notes
+    // of the user like getPagedNotes, it continues from the position of the given
+    // cursor so every page costs the same. If the cursor is null then the first
+    // page is returned. The returned page contains the cursor of the next page or
+    // null if there are no more notes.
+    public NoteCursorPageDto<NoteDto> getNotesAfterCursor(UserPrincipal userPrincipal, String cursor, int size)
+            throws NoteDoesNotExistsException, InvalidCursorException {
+        // the page should contain at least one note
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be greater than zero");
+        }
+        // a bigger page size than the maximum is reduced to the maximum
+        size = Math.min(size, paginationMaxPageSize);
+        // Call a method to find the id of the authenticated user.
+        Optional<Long> optionalUserId = findUserId(userPrincipal);
+        // Check if the Optional contains a user id.
+        if (optionalUserId.isPresent()) {
+            // Get the user's ID.
+            Long userId = optionalUserId.get();
+            // we are asking for one more note than the page size so that we know if there
+            // is a next page without counting the notes of the user
+            Pageable limit = PageRequest.of(0, size + 1);
+            // if there is no cursor we get the first page else we get the notes after the
+            // position of the cursor
+            List<Note> notes;
+            if (cursor == null || cursor.isEmpty()) {
+                notes = noteRepository.findFirstKeysetPage(userId, limit);
+            } else {
+                NoteCursor noteCursor = NoteCursor.decode(cursor);
+                notes = noteRepository.findKeysetPageAfter(userId, noteCursor.getUpdatedAt(),
+                        noteCursor.getNoteId(), limit);
+            }
+            // if we got more notes than the page size then there is a next page and its
+            // cursor points to the last note of this page
+            boolean hasNextPage = notes.size() > size;
+            List<Note> pageNotes = hasNextPage ? notes.subList(0, size) : notes;
+            String nextCursor = hasNextPage ? NoteCursor.of(pageNotes.get(size - 1)).encode() : null;
+            // Convert each Note object to a NoteDto object and return them with the next
+            // cursor
+            List<NoteDto> noteDtos = new ArrayList<>();
+            pageNotes.stream()
+                    .map(DTOConversionUtil::noteToNoteDTO)
+                    .forEach(noteDtos::add);
+            return new NoteCursorPageDto<>(noteDtos, nextCursor);
+        }
+        // if the user is not present for the given email then we throw an exception
+        throw new NoteDoesNotExistsException("Note does not exists for the user and NoteId you have provided");
+    }
+
+    @Override
+    // The transaction is read only because we only read the notes, and the stream
+    // must be read inside a transaction like in streamAllNotes
+    @Transactional(readOnly = true)
+    // This method is the summary version of streamAllNotes. It passes a
+    // NoteSummaryDto of each note of the user with the given id to the given
+    // noteSummaryConsumer. The summaries are selected directly from the note table
+    // which has the preview of the content, so the note_content table is not read
+    // and no Note entity is created.
+    public void streamAllNoteSummaries(Long userId, Consumer<NoteSummaryDto> noteSummaryConsumer) {
+        // streaming the summaries of the notes of the user. The try with resources
+        // block closes the stream and the database cursor behind it. The projections
+        // are not managed entities so nothing has to be detached
+        try (Stream<NoteSummary> summaries = noteRepository.streamSummariesByUserId(userId)) {
+            summaries.map(DTOConversionUtil::noteSummaryToNoteSummaryDto).forEach(noteSummaryConsumer);
+        }
+    }
+
+    @Override
+    // This method is the summary version of getPagedNotes. It returns a page of
+    // PagableNoteSummaryDto objects which contain a preview of the content instead
+    // of the whole content, the latest updated note first.
+    public List<PagableNoteSummaryDto> getPagedNoteSummaries(UserPrincipal userPrincipal, int page, int size)
+            throws NoteDoesNotExistsException {
+        // Call a method to find the id of the authenticated user.
+        Optional<Long> optionalUserId = findUserId(userPrincipal);
+        // Check if the Optional contains a user id.
+        if (optionalUserId.isPresent()) {
+            // Get the user's ID.
+            Long userId = optionalUserId.get();
+            // the query orders the notes by the updated at time so the Pageable only
+            // contains the page number and the size
+            Pageable pageable = PageRequest.of(page, size);
+            List<NoteSummary> summaries = noteRepository.findSummariesByUserId(userId, pageable);
+            // Get the total number of pages from the number of notes of the user.
+            long totalPages = (noteRepository.countByUser_UserId(userId) + size - 1) / size;
+            // Convert each NoteSummary to a PagableNoteSummaryDto object and return them
+            return summaries.stream()
+                    .map(summary -> DTOConversionUtil.noteSummaryToPagableNoteSummaryDto(summary, totalPages))
+                    .toList();
+        }
+        // if the user is not present for the given email then we throw an exception
+        throw new NoteDoesNotExistsException("Note does not exists for the user and NoteId you have provided");
+    }
+
+    @Override
+    // This method is the summary version of getNotesAfterCursor. It returns a page
+    // of NoteSummaryDto objects after the given cursor and the cursor of the next
+    // page. The cursors of both versions are the same so a client can switch
+    // between them while scrolling.
+    public NoteCursorPageDto<NoteSummaryDto> getNoteSummariesAfterCursor(UserPrincipal userPrincipal,
+            String cursor, int size) throws NoteDoesNotExistsException, InvalidCursorException {
+        // the page should contain at least one note
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be greater than zero");
+        }
+        // a bigger page size than the maximum is reduced to the maximum
+        size = Math.min(size, paginationMaxPageSize);
+        // Call a method to find the id of the authenticated user.
+        Optional<Long> optionalUserId = findUserId(userPrincipal);
+        // Check if the Optional contains a user id.
+        if (optionalUserId.isPresent()) {
+            // Get the user's ID.
+            Long userId = optionalUserId.get();
+            // we are asking for one more note than the page size so that we know if there
+            // is a next page without counting the notes of the user
+            Pageable limit = PageRequest.of(0, size + 1);
+            // if there is no cursor we get the first page else we get the notes after the
+            // position of the cursor
+            List<NoteSummary> summaries;
+            if (cursor == null || cursor.isEmpty()) {
+                summaries = noteRepository.findFirstKeysetSummaryPage(userId, limit);
+            } else {
+                NoteCursor noteCursor = NoteCursor.decode(cursor);
+                summaries = noteRepository.findKeysetSummaryPageAfter(userId, noteCursor.getUpdatedAt(),
+                        noteCursor.getNoteId(), limit);
+            }
+            // if we got more notes than the page size then there is a next page and its
+            // cursor points to the last note of this page
+            boolean hasNextPage = summaries.size() > size;
+            List<NoteSummary> pageSummaries = hasNextPage ? summaries.subList(0, size) : summaries;
+            String nextCursor = hasNextPage ? NoteCursor.of(pageSummaries.get(size - 1)).encode() : null;
+            // Convert each NoteSummary to a NoteSummaryDto object and return them with the
+            // next cursor
+            List<NoteSummaryDto> summaryDtos = pageSummaries.stream()
+                    .map(DTOConversionUtil::noteSummaryToNoteSummaryDto)
+                    .toList();
+            return new NoteCursorPageDto<>(summaryDtos, nextCursor);
+        }
+        // if the user is not present for the given email then we throw an exception
+        throw new NoteDoesNotExistsException("Note does not exists for the user and NoteId you have provided");
+    }
+
+    @Override
+    // The transaction is read only because we only read the changes
+    @Transactional(readOnly = true)
+    // This method returns a page of the changes of the notes of the user after the
+    // given cursor (the cursor of the previous sync, not sent for the first sync)
+    // in the order in which they were made. The created and updated notes are read
+    // from the note table and the deleted notes from the note_tombstone table, both
+    // from the position of the cursor in their (user_id, change_sequence, note_id)
+    // index, so a sync costs as much as the number of changes and not the number of
+    // notes of the user
+    public NoteChangesDto getNoteChanges(UserPrincipal userPrincipal, String since, int size)
+            throws NoteDoesNotExistsException, InvalidCursorException {
+        // the page should contain at least one change
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be greater than zero");
+        }
+        // a bigger page size than the maximum is reduced to the maximum
+        size = Math.min(size, syncMaxPageSize);
+        // Call a method to find the id of the authenticated user.
+        Optional<Long> optionalUserId = findUserId(userPrincipal);
+        // If the user is not found then we throw a NoteDoesNotExistsException
+        if (!optionalUserId.isPresent()) {
+            throw new NoteDoesNotExistsException("Note does not exists for the user and NoteId you have provided");
+        }
+        Long userId = optionalUserId.get();
+        boolean hasCursor = since != null && !since.isEmpty();
+        NoteChangeCursor cursor = hasCursor ? NoteChangeCursor.decode(since) : NoteChangeCursor.START;
+        // if tombstones after the cursor were already deleted then the client cannot
+        // learn about those deleted notes, so it has to sync all the notes again
+        NoteSyncState syncState = entityManager.find(NoteSyncState.class, userId);
+        if (hasCursor && syncState != null && cursor.getChangeSequence() < syncState.getPurgedChangeSequence()) {
+            return new NoteChangesDto(List.of(), null, false, true);
+        }
+        // we are asking for one more change of each kind than the page size so that
+        // we know if there is a next page
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Note> notes = noteRepository.findChangedAfter(userId, cursor.getChangeSequence(), cursor.getNoteId(),
+                limit);
+        List<NoteTombstone> tombstones = noteTombstoneRepository.findChangedAfter(userId,
+                cursor.getChangeSequence(), cursor.getNoteId(), limit);
+        // merging the two sorted lists by (changeSequence, noteId) until the page is
+        // full
+        List<NoteChangeDto> changes = new ArrayList<>();
+        int noteIndex = 0;
+        int tombstoneIndex = 0;
+        while (changes.size() < size && (noteIndex < notes.size() || tombstoneIndex < tombstones.size())) {
+            boolean takeNote = tombstoneIndex == tombstones.size() || (noteIndex < notes.size()
+                    && compareChanges(notes.get(noteIndex).getChangeSequence(), notes.get(noteIndex).getNoteId(),
+                            tombstones.get(tombstoneIndex).getChangeSequence(),
+                            tombstones.get(tombstoneIndex).getNoteId()) < 0);
+            changes.add(takeNote ? DTOConversionUtil.noteToNoteChangeDto(notes.get(noteIndex++))
+                    : DTOConversionUtil.noteTombstoneToNoteChangeDto(tombstones.get(tombstoneIndex++)));
+        }
+        // there is a next page if a change was left out of this page
+        boolean hasMore = noteIndex < notes.size() || tombstoneIndex < tombstones.size();
+        // the cursor points to the last change of the page, or stays where it was if
+        // nothing changed
+        String nextCursor = changes.isEmpty() ? (hasCursor ? since : null)
+                : new NoteChangeCursor(changes.get(changes.size() - 1).getChangeSequence(),
+                        changes.get(changes.size() - 1).getNoteId()).encode();
+        return new NoteChangesDto(changes, nextCursor, hasMore, false);
+    }
+
+    @Override
+    // No transaction is needed because the connection is only registered in memory
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    // This method opens a Server-Sent Events connection on which the changes of the
+    // notes of the user are pushed as they are committed. It throws a
+    // UserNotFoundException if the user is not found
+    public SseEmitter subscribeToNoteChanges(UserPrincipal userPrincipal) throws UserNotFoundException {
+        Optional<Long> optionalUserId = findUserId(userPrincipal);
+        if (!optionalUserId.isPresent()) {
+            throw new UserNotFoundException("The user does not exists to receive the changes of the notes");
+        }
+        return noteChangeBroadcaster.connect(optionalUserId.get());
+    }
+
+    // This method returns the next change sequence of the notes of the user. The
+    // sync state of the user stays locked until the transaction commits, so the
+    // changes of a user are committed in the order of their change sequences and a
+    // client which has read the changes up to a change sequence never misses a
+    // change with a smaller one. The later calls of the same transaction use the
+    // already locked user and sync state
+    private long nextChangeSequence(Long userId) {
+        // the user is locked before the sync state is read. If the sync state does not
+        // exist yet, a locking read of it takes a gap lock on MySQL which does not stop
+        // another transaction from taking the same gap lock, and the inserts of two
+        // first changes at the same time would then wait for each other's gap lock
+        // and deadlock. With the user locked first the second change waits until the
+        // first one has created the sync state and committed
+        Users user = entityManager.find(Users.class, userId, LockModeType.PESSIMISTIC_WRITE);
+        NoteSyncState syncState = entityManager.find(NoteSyncState.class, userId, LockModeType.PESSIMISTIC_WRITE);
+        if (syncState == null) {
+            // the first change of the user creates its sync state
+            syncState = new NoteSyncState(user);
+            entityManager.persist(syncState);
+        }
+        syncState.setLastChangeSequence(syncState.getLastChangeSequence() + 1);
+        return syncState.getLastChangeSequence();
+    }
+
+    // This method records the delete of the note with the given id so that the
+    // sync clients of the user also delete it, and publishes the delete to the
+    // connected devices of the user. It returns the change sequence of the delete
+    private long addTombstone(Long userId, long noteId) {
+        NoteTombstone tombstone = new NoteTombstone(noteId, userRepository.getReferenceById(userId),
+                nextChangeSequence(userId), Date.from(Instant.now()));
+        entityManager.persist(tombstone);
+        publisher.publishEvent(new NoteChangedEvent(this, userId, new NoteChangeEventDto(noteId,
+                NoteChangeDto.Type.DELETED, tombstone.getDeletedAt(), tombstone.getChangeSequence())));
+        return tombstone.getChangeSequence();
+    }
+
+    // This method publishes the create or update of the given note. The
+    // NoteChangedEventListener pushes it to the connected devices of the user after
+    // the transaction commits
+    private void publishChange(Note note) {
+        publisher.publishEvent(new NoteChangedEvent(this, note.getUser().getUserId(), new NoteChangeEventDto(
+                note.getNoteId(), NoteChangeDto.Type.SAVED, note.getUpdatedAt(), note.getChangeSequence())));
+    }
+
+    // This method compares two changes by their change sequence and then by their
+    // note id which is the order of the changes in the sync api
+    private static int compareChanges(long changeSequence, long noteId, long otherChangeSequence, long otherNoteId) {
+        int compared = Long.compare(changeSequence, otherChangeSequence);
+        return compared != 0 ? compared : Long.compare(noteId, otherNoteId);
+    }
+
+    // This method returns the id of the authenticated user. The id is taken from
+    // the jwt so normally no query is needed. Only for the jwt's which were issued
+    // before the user id was added to the jwt we look up the user by the email
+    private Optional<Long> findUserId(UserPrincipal userPrincipal) {
+        if (userPrincipal == null) {
+            return Optional.empty();
+        }
+        if (userPrincipal.getUserId() != null) {
+            return Optional.of(userPrincipal.getUserId());
+        }
+        return userRepository.findByEmail(userPrincipal.getEmail()).map(Users::getUserId);
+    }
+
+    // This method returns the note with the given id if it belongs to the
+    // authenticated user. The ownership is checked by the database in the query
+    // itself so a note of another user is never loaded
+    private Optional<Note> findNoteOfUser(UserPrincipal userPrincipal, Long noteId) {
+        return findUserId(userPrincipal)
+                .flatMap(userId -> noteRepository.findByNoteIdAndUser_UserId(noteId, userId));
+    }
+
 }
@@ -0,0 +1,57 @@
+package com.pavansingerreddy.note.services;
+
+import java.time.Duration;
+import java.util.Date;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.pavansingerreddy.note.repository.NoteTombstoneRepository;
+
+// Component annotation tells Spring that this class is a component so that spring
+// creates a bean of it and runs its scheduled method
+@Component
+// NoteTombstoneCleanup deletes the tombstones of the notes which were deleted
+// long ago so that the note_tombstone table does not grow with every note which
+// was ever deleted. A client which did not sync for longer than the retention
+// days is told to sync all its notes again
+public class NoteTombstoneCleanup {
+
+    // the logger which writes the number of deleted tombstones to the application
+    // log
+    private static final Logger log = LoggerFactory.getLogger(NoteTombstoneCleanup.class);
+
+    // autowiring our NoteTombstoneRepository so that the bean or instance of
+    // NoteTombstoneRepository will be injected here by the spring IOC container
+    @Autowired
+    private NoteTombstoneRepository noteTombstoneRepository;
+
+    // number of days for which the tombstones of the deleted notes are kept
+    @Value("${notes.sync.tombstone-retention-days:90}")
+    private long retentionDays;
+
+    // Scheduled annotation runs this method every day at the time of the cron
+    // expression and Async annotation runs it on the maintenance executor like the
+    // EmailOutboxCleanup. Transactional annotation runs both queries in one
+    // transaction so that the sync states are only changed if the tombstones are
+    // deleted
+    @Scheduled(cron = "${notes.sync.tombstone-cleanup-cron:0 45 3 * * *}")
+    @Async("maintenanceExecutor")
+    @Transactional
+    // This method deletes the tombstones which are older than the retention days
+    // after remembering in the sync state of their users up to which change
+    // sequence the tombstones are gone
+    public void deleteOldTombstones() {
+        Date before = new Date(System.currentTimeMillis() - Duration.ofDays(retentionDays).toMillis());
+        noteTombstoneRepository.markPurgedBefore(before);
+        int deleted = noteTombstoneRepository.deleteDeletedBefore(before);
+        log.info("Deleted {} tombstones of deleted notes", deleted);
+    }
+
+}
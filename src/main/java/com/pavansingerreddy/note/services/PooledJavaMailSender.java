@@ -0,0 +1,201 @@
+package com.pavansingerreddy.note.services;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import jakarta.mail.Address;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.AllArgsConstructor;
+
+// PooledJavaMailSender is a JavaMailSenderImpl which keeps its SMTP connections
+// open after sending. JavaMailSenderImpl opens a new connection for every call
+// of send, so every email paid for the TCP connection, the STARTTLS handshake and
+// the AUTH command. Here the connection is returned to a small pool after the
+// send and the next send reuses it, and a connection which was not used for
+// idleTimeout is closed so that the SMTP server does not close it on us
+public class PooledJavaMailSender extends JavaMailSenderImpl {
+
+    // maximum number of open connections which are kept in the pool
+    private final int maxIdleConnections;
+    // time after which a connection which was not used is closed
+    private final long idleTimeoutNanos;
+    // the open connections which are not used right now. The most recently used
+    // connection is at the head so that the old connections time out
+    private final Deque<IdleTransport> idleTransports = new ArrayDeque<>();
+    // number of connections opened since the sender was created
+    private final AtomicLong openedConnections = new AtomicLong();
+
+    // This constructor creates a sender which keeps up to maxIdleConnections open
+    // connections for up to idleTimeout
+    public PooledJavaMailSender(int maxIdleConnections, Duration idleTimeout) {
+        this.maxIdleConnections = maxIdleConnections;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+    }
+
+    // This method returns the number of connections opened since the sender was
+    // created. It shows how well the connections are reused
+    public long getOpenedConnections() {
+        return openedConnections.get();
+    }
+
+    @Override
+    // This method sends the messages like JavaMailSenderImpl does but with a
+    // connection from the pool. All the messages of one call are sent over the same
+    // connection and the connection is returned to the pool afterwards
+    protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) throws MailException {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        Transport transport = null;
+        try {
+            for (int i = 0; i < mimeMessages.length; i++) {
+                // reconnecting if the previous message broke the connection
+                if (transport == null || !transport.isConnected()) {
+                    closeQuietly(transport);
+                    transport = null;
+                    try {
+                        transport = borrowTransport();
+                    } catch (AuthenticationFailedException ex) {
+                        throw new MailAuthenticationException(ex);
+                    } catch (Exception ex) {
+                        // the remaining messages cannot be sent without a connection
+                        for (int j = i; j < mimeMessages.length; j++) {
+                            Object original = (originalMessages != null ? originalMessages[j] : mimeMessages[j]);
+                            failedMessages.put(original, ex);
+                        }
+                        throw new MailSendException("Mail server connection failed", ex, failedMessages);
+                    }
+                }
+
+                MimeMessage mimeMessage = mimeMessages[i];
+                try {
+                    // the same preparation of the message as in JavaMailSenderImpl
+                    if (mimeMessage.getSentDate() == null) {
+                        mimeMessage.setSentDate(new Date());
+                    }
+                    String messageId = mimeMessage.getMessageID();
+                    mimeMessage.saveChanges();
+                    if (messageId != null) {
+                        mimeMessage.setHeader("Message-ID", messageId);
+                    }
+                    Address[] addresses = mimeMessage.getAllRecipients();
+                    transport.sendMessage(mimeMessage, (addresses != null ? addresses : new Address[0]));
+                } catch (Exception ex) {
+                    Object original = (originalMessages != null ? originalMessages[i] : mimeMessage);
+                    failedMessages.put(original, ex);
+                }
+            }
+        } finally {
+            if (transport != null) {
+                releaseTransport(transport);
+            }
+        }
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    // This method closes the connections which were not used for idleTimeout. It is
+    // called regularly so that the SMTP server does not have to close them
+    public void closeIdleConnections() {
+        long now = System.nanoTime();
+        synchronized (idleTransports) {
+            Iterator<IdleTransport> iterator = idleTransports.descendingIterator();
+            while (iterator.hasNext()) {
+                IdleTransport idleTransport = iterator.next();
+                if (now - idleTransport.releasedAtNanos < idleTimeoutNanos) {
+                    break;
+                }
+                iterator.remove();
+                closeQuietly(idleTransport.transport);
+            }
+        }
+    }
+
+    // This method closes all the pooled connections. It is called when the
+    // application stops
+    public void close() {
+        synchronized (idleTransports) {
+            for (IdleTransport idleTransport : idleTransports) {
+                closeQuietly(idleTransport.transport);
+            }
+            idleTransports.clear();
+        }
+    }
+
+    // This method returns the most recently used connection which is still open or
+    // opens a new connection if the pool has none
+    private Transport borrowTransport() throws MessagingException {
+        long now = System.nanoTime();
+        while (true) {
+            IdleTransport idleTransport;
+            synchronized (idleTransports) {
+                idleTransport = idleTransports.pollFirst();
+            }
+            if (idleTransport == null) {
+                break;
+            }
+            // isConnected sends a NOOP to the SMTP server so a connection which was
+            // closed by the server is found here and not when the message is sent
+            if (now - idleTransport.releasedAtNanos < idleTimeoutNanos && idleTransport.transport.isConnected()) {
+                return idleTransport.transport;
+            }
+            closeQuietly(idleTransport.transport);
+        }
+        Transport transport = connectTransport();
+        openedConnections.incrementAndGet();
+        return transport;
+    }
+
+    // This method puts the connection back into the pool or closes it if it is
+    // broken or the pool is full
+    private void releaseTransport(Transport transport) {
+        if (transport.isConnected()) {
+            synchronized (idleTransports) {
+                if (idleTransports.size() < maxIdleConnections) {
+                    idleTransports.addFirst(new IdleTransport(transport, System.nanoTime()));
+                    return;
+                }
+            }
+        }
+        closeQuietly(transport);
+    }
+
+    // This method closes the connection and ignores the errors as the connection
+    // is not used anymore
+    private void closeQuietly(Transport transport) {
+        if (transport == null) {
+            return;
+        }
+        try {
+            transport.close();
+        } catch (MessagingException ex) {
+            // the connection is already broken
+        }
+    }
+
+    // IdleTransport is an open connection of the pool with the time at which it
+    // was returned to the pool. @AllArgsConstructor is a Lombok annotation to
+    // create a constructor with all the fields
+    @AllArgsConstructor
+    private static class IdleTransport {
+
+        private final Transport transport;
+        private final long releasedAtNanos;
+
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.pavansingerreddy.note.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pavansingerreddy.note.entity.Role;
+import com.pavansingerreddy.note.repository.RoleRepository;
+
+import jakarta.annotation.PostConstruct;
+
+// Component annotation tells Spring that this class is a component so that spring
+// creates a single bean of it which is shared by the whole application
+@Component
+// RoleCatalog holds the one and only row of every role of the application.
+// Previously every registered user got its own new ROLE_USER row, so the role
+// table grew with the users. Now the roles are created once at startup and every
+// user references the same role, which is looked up here from an immutable map
+// instead of the database
+public class RoleCatalog {
+
+    // name of the role of the normal users.Here we are prefixing our role with
+    // "ROLE_" because we can use @RolesAllowed("USER") directly in our controller
+    // methods.If we use "USER" here then we have to use @RolesAllowed("ROLE_USER")
+    // in the controller
+    public static final String ROLE_USER = "ROLE_USER";
+
+    // all the roles which must exist in the database
+    private static final List<String> ROLE_NAMES = List.of(ROLE_USER);
+
+    // autowiring our RoleRepository so that the bean or instance of
+    // RoleRepository will be injected here by the spring IOC container
+    @Autowired
+    private RoleRepository roleRepository;
+
+    // the transaction manager is used to run the startup work in a transaction as
+    // the @Transactional annotation does not work in a @PostConstruct method
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // the roles by their name. It is replaced by an immutable map once at startup
+    // and never changed after that so it can be read by all the requests without
+    // locking
+    private Map<String, Role> rolesByName = Map.of();
+
+    // PostConstruct annotation runs this method once after the bean is created, so
+    // the roles are loaded before the application starts accepting requests
+    @PostConstruct
+    void loadRoles() {
+        rolesByName = new TransactionTemplate(transactionManager).execute(status -> {
+            // grouping the existing roles by their name so that we can find the roles
+            // which were created more than once
+            Map<String, List<Role>> existingRoles = roleRepository.findAll().stream()
+                    .sorted(Comparator.comparingLong(Role::getRoleId))
+                    .collect(Collectors.groupingBy(Role::getName));
+            Map<String, Role> roles = new HashMap<>();
+            for (Map.Entry<String, List<Role>> entry : existingRoles.entrySet()) {
+                // the oldest role with the name is kept and the others are merged into it
+                Role role = entry.getValue().get(0);
+                mergeDuplicates(role, entry.getValue().subList(1, entry.getValue().size()));
+                roles.put(entry.getKey(), role);
+            }
+            // creating the roles which don't exist yet
+            for (String roleName : ROLE_NAMES) {
+                if (!roles.containsKey(roleName)) {
+                    roles.put(roleName, roleRepository.save(new Role(roleName)));
+                }
+            }
+            return Map.copyOf(roles);
+        });
+    }
+
+    // This method returns the role with the given name. It throws an
+    // IllegalArgumentException if the role does not exist as that is a mistake in
+    // the code and not in the request of the user
+    public Role getRole(String roleName) {
+        Role role = rolesByName.get(roleName);
+        if (role == null) {
+            throw new IllegalArgumentException("Unknown role " + roleName);
+        }
+        return role;
+    }
+
+    // This method links the users of the duplicate roles to the given role and then
+    // deletes the duplicate roles
+    private void mergeDuplicates(Role role, List<Role> duplicates) {
+        if (duplicates.isEmpty()) {
+            return;
+        }
+        List<Long> duplicateRoleIds = new ArrayList<>();
+        for (Role duplicate : duplicates) {
+            duplicateRoleIds.add(duplicate.getRoleId());
+        }
+        roleRepository.deleteLinksToDuplicatesOfLinkedRole(role.getRoleId(), duplicateRoleIds);
+        roleRepository.moveUsersToRole(role.getRoleId(), duplicateRoleIds);
+        roleRepository.deleteRoles(duplicateRoleIds);
+    }
+
+}
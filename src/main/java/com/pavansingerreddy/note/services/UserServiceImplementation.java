@@ -1,14 +1,12 @@
 package com.pavansingerreddy.note.services;
 
-import java.time.Instant;
+import java.time.Duration;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -48,6 +46,15 @@ public class UserServiceImplementation implements UserService {
     @Value("${verification.Token.expiry.seconds}")
     private Long TokenExpireTimeInSeconds;
 
+    // autowiring our RoleCatalog which contains the shared roles of the users
+    @Autowired
+    private RoleCatalog roleCatalog;
+
+    // autowiring our MailSenderPool which knows which mail sender can send the
+    // verification email of a new user
+    @Autowired
+    private MailSenderPool mailSenderPool;
+
     // autowiring our JWTUtil so that the bean or instance of JWTUtil will be
     // injected here by the spring IOC container.so that we can perform operations
     // related to Jwt like creating them validating them etc...
@@ -118,22 +125,16 @@ public class UserServiceImplementation implements UserService {
             // copying the details of the user from the user model to the user using the in
             // Built BeanUtils class and using it's copyProperties
             BeanUtils.copyProperties(userModel, user);
-            // creating a new role object
-            Role role = new Role();
-            // setting the role name to the "ROLE_USER".Here we are prefixing our role with
-            // "ROLE_" because we can use @RolesAllowed("USER") directly in our controller
-            // methods.If we use "USER" here then we have to use @RolesAllowed("ROLE_USER")
-            // in the controller.These roles can be used for protecting our api's so that
-            // only authorized users who have permission to access our resource can access
-            // it
-            role.setName("ROLE_USER");
             // This line creates a new HashSet of Role objects. A HashSet is a collection
             // that does not allow duplicate elements, and a Role is a custom class that
             // represents a user’s role in the system (like “ROLE_ADMIN”, “ROLE_USER”,
             // etc.).
             Set<Role> roles = new HashSet<>();
-            // adding our role to the hash set.
-            roles.add(role);
+            // adding the shared "ROLE_USER" role from the role catalog to the hash set.
+            // The same role row is used by all the users so no new role is created for
+            // the user. These roles can be used for protecting our api's so that only
+            // authorized users who have permission to access our resource can access it
+            roles.add(roleCatalog.getRole(RoleCatalog.ROLE_USER));
             // setting our roles for the user
             user.setRoles(roles);
             // setting our password for the new user by making our already existing password
@@ -141,12 +142,8 @@ public class UserServiceImplementation implements UserService {
             // compromised user's password should not be leaked
             user.setPassword(passwordEncoder.encode(user.getPassword()));
             // This method assigns the current time to the userCreatedAtTime variable of the
-            // user object and then assigns a random time which is between 5 to 10 minutes
-            // ahead of the current time to the newUserCanBeCreatedAtTime variable of the
-            // user object so that when we create a next new user we can check for this time
-            // and send email based on this time for verifying the new user we don't get
-            // blocked by our email provider for spam
-            user.updateUserCreatedAtTimeAndNewUserCanBeCreatedAtTime();
+            // user object
+            user.updateUserCreatedAtTime();
             // setting the mailNoToUseForSendingEmail of the user which represents which
             // mail we have used from our mail providers list for sending the verification
             // email for this user
@@ -505,46 +502,18 @@ public class UserServiceImplementation implements UserService {
     // email so that we don't get marked as spam by our email service provider like
     // gmail or outlook.
     public Integer getLatestEmailToUse() throws InvalidUserDetailsException {
-
-        // This findTheUserWhoContainsTheAppropriateEmailToSendSignUpUrl() gets the
-        // latest signed up user who's mailNoToUseForSendingEmail has the lowest
-        // newUserCanBeCreatedAtTime
-        Optional<Users> userOptional = userRepository.findTheUserWhoContainsTheAppropriateEmailToSendSignUpUrl();
-        // if any user is present then we get the user and check if the
-        // getNewUserCanBeCreatedAtTime for that user is greater than the current time
-        // if it is greater then we throw an InvalidUserDetailsException else we return
-        // 1 which indicates to choose the first email provider as we will be having at
-        // least one email provider to send emails
-        if (userOptional.isPresent()) {
-            // getting the user from the optional user
-            Users user = userOptional.get();
-            // getting the current date
-            Date currentDate = Date.from(Instant.now());
-            // user.getNewUserCanBeCreatedAtTime().compareTo(currentDate) returns 0 if the
-            // dates are equal, a value less than 0 if user.getNewUserCanBeCreatedAtTime()
-            // is before currentDate, and a value greater than 0 if
-            // user.getNewUserCanBeCreatedAtTime() is after currentDate
-            if (user.getNewUserCanBeCreatedAtTime().compareTo(currentDate) > 0) {
-                // Calculate difference in milliseconds
-                long diffInMilli = Math.abs(user.getNewUserCanBeCreatedAtTime().getTime() - currentDate.getTime());
-
-                // Convert to minutes and seconds
-                long diffInMinutes = TimeUnit.MILLISECONDS.toMinutes(diffInMilli);
-                long diffInSeconds = TimeUnit.MILLISECONDS.toSeconds(diffInMilli) -
-                        TimeUnit.MINUTES.toSeconds(diffInMinutes);
-
-                // throw an Exception with message which indicates when the new user can be
-                // created so that our email service provider cannot be suspected for spam
-                throw new InvalidUserDetailsException("Email service is busy right now try after " + diffInMinutes
-                        + " minutes and " + diffInSeconds + " seconds");
-            }
-            // if the user.getNewUserCanBeCreatedAtTime() is less than the current time then
-            // we can return the user's mailNoToUseForSendingEmail so that our controller
-            // can use this and register event with this value and our event listener will
-            // choose the email provider and send the email based on this value
-            return user.getMailNoToUseForSendingEmail();
+        // the MailSenderPool reserves a token of the least loaded sender which can send
+        // an email now, so concurrent registrations cannot all pass the check. If every
+        // sender has reached its rate limit we throw an InvalidUserDetailsException
+        // with the time after which the new user can be created so that our email
+        // service provider does not suspect us for spam
+        Optional<Integer> mailNo = mailSenderPool.reserveLeastLoadedSender();
+        if (mailNo.isPresent()) {
+            return mailNo.get();
         }
-        return 1;
+        Duration retryAfter = mailSenderPool.timeUntilAvailable();
+        throw new InvalidUserDetailsException("Email service is busy right now try after "
+                + retryAfter.toMinutes() + " minutes and " + retryAfter.toSecondsPart() + " seconds");
     }
 
 }
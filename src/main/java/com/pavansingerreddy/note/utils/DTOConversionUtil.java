@@ -3,12 +3,20 @@ package com.pavansingerreddy.note.utils;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.pavansingerreddy.note.dto.NoteChangeDto;
 import com.pavansingerreddy.note.dto.NoteDto;
+import com.pavansingerreddy.note.dto.NoteSearchHitDto;
+import com.pavansingerreddy.note.dto.NoteSummaryDto;
 import com.pavansingerreddy.note.dto.PagableNoteDto;
+import com.pavansingerreddy.note.dto.PagableNoteSummaryDto;
 import com.pavansingerreddy.note.dto.UserDto;
 import com.pavansingerreddy.note.entity.Note;
+import com.pavansingerreddy.note.entity.NoteTombstone;
 import com.pavansingerreddy.note.entity.Users;
 import com.pavansingerreddy.note.model.NoteModel;
+import com.pavansingerreddy.note.repository.NoteSummary;
+import com.pavansingerreddy.note.search.NoteSearchResult;
+import com.pavansingerreddy.note.search.NoteSnippets;
 
 // This is a utility class which is used for converting the original entity to it's DTO
 public class DTOConversionUtil {
@@ -69,6 +77,74 @@ public class DTOConversionUtil {
         return noteDto;
     }
 
+    // This method converts a created or updated Note object to a NoteChangeDto
+    // object. If the title or the content is null, set it to an empty string.
+    public static NoteChangeDto noteToNoteChangeDto(Note note) {
+        return new NoteChangeDto(NoteChangeDto.Type.SAVED, note.getNoteId(), note.getChangeSequence(),
+                note.getTitle() != null ? note.getTitle() : "",
+                note.getContent() != null ? note.getContent() : "",
+                note.getCreatedAt(), note.getUpdatedAt(), null);
+    }
+
+    // This method converts a NoteTombstone object to a NoteChangeDto object.
+    public static NoteChangeDto noteTombstoneToNoteChangeDto(NoteTombstone noteTombstone) {
+        return new NoteChangeDto(NoteChangeDto.Type.DELETED, noteTombstone.getNoteId(),
+                noteTombstone.getChangeSequence(), null, null, null, null, noteTombstone.getDeletedAt());
+    }
+
+    // This method converts a NoteSummary projection to a NoteSummaryDto object.
+    public static NoteSummaryDto noteSummaryToNoteSummaryDto(NoteSummary noteSummary) {
+        // Create the NoteSummaryDto from the columns of the projection. If the title or
+        // the preview is null, set it to an empty string.
+        return new NoteSummaryDto(noteSummary.getNoteId(),
+                noteSummary.getTitle() != null ? noteSummary.getTitle() : "",
+                noteSummary.getPreview() != null ? noteSummary.getPreview() : "",
+                noteSummary.getUpdatedAt());
+    }
+
+    // This method converts a NoteSummary projection to a PagableNoteSummaryDto
+    // object.
+    public static PagableNoteSummaryDto noteSummaryToPagableNoteSummaryDto(NoteSummary noteSummary,
+            long totalPages) {
+        // Create the PagableNoteSummaryDto from the columns of the projection and the
+        // total number of pages. If the title or the preview is null, set it to an
+        // empty string.
+        return new PagableNoteSummaryDto(noteSummary.getNoteId(),
+                noteSummary.getTitle() != null ? noteSummary.getTitle() : "",
+                noteSummary.getPreview() != null ? noteSummary.getPreview() : "",
+                noteSummary.getUpdatedAt(), totalPages);
+    }
+
+    // This method converts a search hit to a NoteSearchHitDto object. Instead of the
+    // whole content it contains a snippet of at most snippetLength characters around
+    // the first matches of the search terms.
+    public static NoteSearchHitDto noteSearchHitToNoteSearchHitDto(NoteSearchResult.Hit hit, List<String> terms,
+            int snippetLength) {
+        Note note = hit.getNote();
+        // Create a new NoteSearchHitDto object.
+        NoteSearchHitDto hitDto = new NoteSearchHitDto();
+        // Set the note ID in the NoteSearchHitDto.
+        hitDto.setNoteId(note.getNoteId());
+        // Set the title in the NoteSearchHitDto and mark the parts of it which match
+        // the search terms. If the title in the Note is null, set it to an empty
+        // string.
+        String title = note.getTitle() != null ? note.getTitle() : "";
+        hitDto.setTitle(title);
+        hitDto.setTitleHighlights(NoteSnippets.highlights(title, terms));
+        // Cut the snippet out of the content and set it with its matches in the
+        // NoteSearchHitDto.
+        NoteSnippets.Snippet snippet = NoteSnippets.snippet(note.getContent(), terms, snippetLength);
+        hitDto.setSnippet(snippet.getText());
+        hitDto.setSnippetHighlights(snippet.getHighlights());
+        // Set the score which the database calculated for the note.
+        hitDto.setScore(hit.getScore());
+        // Set the created at and the updated at time in the NoteSearchHitDto.
+        hitDto.setCreatedAt(note.getCreatedAt());
+        hitDto.setUpdatedAt(note.getUpdatedAt());
+        // Return the NoteSearchHitDto.
+        return hitDto;
+    }
+
     // This method converts a Note object to a PagableNoteDto object.
     public static PagableNoteDto noteToPagableNoteDto(Note note, long totalPages) {
 
@@ -110,8 +186,10 @@ public class DTOConversionUtil {
         // original title in the Note.
         note.setTitle(noteModel.getTitle() != null ? noteModel.getTitle() : note.getTitle());
         // Set the content in the Note. If the content in the NoteModel is null, keep
-        // the original content in the Note.
-        note.setContent(noteModel.getContent() != null ? noteModel.getContent() : note.getContent());
+        // the original content in the Note without loading it.
+        if (noteModel.getContent() != null) {
+            note.setContent(noteModel.getContent());
+        }
         // Return the Note.
         return note;
     }
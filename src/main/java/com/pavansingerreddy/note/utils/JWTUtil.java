@@ -1,9 +1,7 @@
 package com.pavansingerreddy.note.utils;
 
-import java.security.interfaces.RSAPublicKey;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -20,15 +18,16 @@ import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
 import org.springframework.stereotype.Component;
 
-import com.nimbusds.jose.JWSVerifier;
-import com.nimbusds.jose.crypto.RSASSAVerifier;
-import com.nimbusds.jwt.SignedJWT;
+import com.pavansingerreddy.note.model.UserPrincipal;
 
 // Component annotation tells Spring that this class is a component. It's a generic stereotype for any Spring-managed component.
 @Component
 // JWTUtil is a utility class for managing the jwt's
 public class JWTUtil {
 
+    // name of the claim which contains the user's id
+    private static final String USER_ID_CLAIM = "userId";
+
     // This Autowired annotation is used by Spring to automatically inject an
     // instantiated
     // bean of JwtEncoder into this field.
@@ -41,11 +40,12 @@ public class JWTUtil {
     @Autowired
     private JwtDecoder jwtDecoder;
 
-    // This annotation is used to inject the value of the property "jwt.public.key"
-    // from the application.yml into the field "publicKey".
-    @Value("${jwt.public.key}")
-    // This is a field of type RSAPublicKey which will hold the public key.
-    RSAPublicKey publicKey;
+    // This Autowired annotation is used by Spring to automatically inject an
+    // instantiated
+    // bean of JwtVerificationCache into this field.
+    @Autowired
+    private JwtVerificationCache jwtVerificationCache;
+
     // This annotation is used to inject the value of the property
     // "jwt.token.expiry.seconds" from application.yml into the field
     // "expireTimeInSeconds".
@@ -70,7 +70,7 @@ public class JWTUtil {
                 .collect(Collectors.joining(" "));
 
         // Start building a JwtClaimsSet,
-        JwtClaimsSet claims = JwtClaimsSet.builder()
+        JwtClaimsSet.Builder claimsBuilder = JwtClaimsSet.builder()
                 // set the issuer,
                 .issuer("notes-app")
                 // set the issued at time,
@@ -80,9 +80,15 @@ public class JWTUtil {
                 // set the subject with the name from the authentication object,
                 .subject(authentication.getName())
                 // and set a claim for the roles with the scope.
-                .claim("roles", scope)
-                // Build the JwtClaimsSet.
-                .build();
+                .claim("roles", scope);
+        // if the authenticated principal contains the user's id then we also add it to
+        // the jwt so that the notes api's don't have to look up the user by the email
+        if (authentication.getPrincipal() instanceof UserPrincipal userPrincipal
+                && userPrincipal.getUserId() != null) {
+            claimsBuilder.claim(USER_ID_CLAIM, userPrincipal.getUserId());
+        }
+        // Build the JwtClaimsSet.
+        JwtClaimsSet claims = claimsBuilder.build();
 
         // Encode the JwtClaimsSet into a JWT and get the token value.
         String encodedJwt = jwtEncoder.encode(JwtEncoderParameters.from(claims)).getTokenValue();
@@ -90,80 +96,72 @@ public class JWTUtil {
         return encodedJwt;
     }
 
-    // This method validates a JWT by taking the encoded jwt string.
-    public boolean validateJwt(String encodedJwt) {
-        SignedJWT signedJWT;
-        // initially setting the isVerified to false and we will change it according to
-        // our jwt validation
-        boolean isVerified = false;
+    // This method verifies the JWT only once and returns the subject, roles and
+    // expiry of it or null if the JWT is not valid. If the same JWT was already
+    // verified by a previous request then it is returned from the
+    // jwtVerificationCache without verifying the signature again
+    public VerifiedJwt verifyJwt(String encodedJwt) {
+        Instant now = Instant.now();
+        // the tokens are cached by their hash so we never keep the raw jwt in memory
+        String tokenHash = JwtVerificationCache.hash(encodedJwt);
+        VerifiedJwt cachedJwt = jwtVerificationCache.get(tokenHash, now);
+        if (cachedJwt != null) {
+            return cachedJwt;
+        }
         try {
-            // Parse the encoded JWT into a SignedJWT.
-            signedJWT = SignedJWT.parse(encodedJwt);
-            // The line JWSVerifier verifier = new RSASSAVerifier(this.publicKey); is
-            // creating a new instance of JWSVerifier using the RSA public key.
-
-            // JWSVerifier is an interface for classes that can verify JSON Web Signatures
-            // (JWS). RSASSAVerifier is a concrete implementation of this interface that can
-            // verify JWSs using RSA signatures.
-
-            // In this case, new RSASSAVerifier(this.publicKey) is creating a new
-            // RSASSAVerifier with the RSA public key (this.publicKey). This verifier can
-            // then be used to verify the signature of a JWS, ensuring that the data has not
-            // been tampered with and was signed by the expected party.
-
-            // If the signature does not match, the verify() method of JWSVerifier will
-            // return false, indicating a failed verification. If the signature matches, it
-            // will return true, indicating a successful verification. This is crucial for
-            // ensuring the integrity and authenticity of the JWT.
-            JWSVerifier verifier = new RSASSAVerifier(this.publicKey);
-            // Verify the SignedJWT with the verifier.
-            isVerified = signedJWT.verify(verifier);
-            // Decode the encoded JWT into a Jwt.
+            // Decode the encoded JWT into a Jwt. The NimbusJwtDecoder verifies the RSA
+            // signature with our public key while decoding so this is the only signature
+            // verification of the request
             Jwt jwt = jwtDecoder.decode(encodedJwt);
             // Get the claims from the Jwt.
             Map<String, Object> claimString = jwt.getClaims();
             // Get the expiry time from the claims.
             Instant jwtExpiry = (Instant) claimString.get("exp");
             // Check if the JWT is not expired.
-            boolean isNotExpired = jwtExpiry.getEpochSecond() >= Instant.now().getEpochSecond();
+            boolean isNotExpired = jwtExpiry != null && jwtExpiry.getEpochSecond() >= now.getEpochSecond();
             // Check if the subject in the claims is not null.subject contains the user's
             // email
             boolean userIsNotNull = claimString.get("sub") != null
                     &&
                     !claimString.get("sub").toString().equals(""); // and is not an empty string.
-            // Return true if the JWT is verified, is not expired, and the user is not null
-            // or empty.
-            return isVerified && isNotExpired && userIsNotNull;
+            if (!isNotExpired || !userIsNotNull) {
+                return null;
+            }
+            // Get the roles from the claims, convert it to a string, create a new
+            // SimpleGrantedAuthority with it, and put it in a list.
+            Object rolesClaim = claimString.get("roles");
+            List<SimpleGrantedAuthority> roles = rolesClaim == null ? List.of()
+                    : List.of(new SimpleGrantedAuthority(rolesClaim.toString()));
+            // Get the user's id from the claims. It is not present in the jwt's which were
+            // issued before it was added so it can be null
+            Object userIdClaim = claimString.get(USER_ID_CLAIM);
+            Long userId = userIdClaim instanceof Number number ? number.longValue() : null;
+            VerifiedJwt verifiedJwt = new VerifiedJwt(claimString.get("sub").toString(), userId, roles, jwtExpiry);
+            // remembering the verified JWT until it expires
+            jwtVerificationCache.put(tokenHash, verifiedJwt, now);
+            return verifiedJwt;
         } catch (Exception e) {
-            // If there's an exception, return false.
-            return false;
+            // If there's an exception, the JWT is not valid.
+            return null;
         }
+    }
 
+    // This method validates a JWT by taking the encoded jwt string.
+    public boolean validateJwt(String encodedJwt) {
+        return verifyJwt(encodedJwt) != null;
     }
 
     // This method gets the username from a JWT token.
     public String getUsername(String token) {
-        // Decode the token into a Jwt.
-        Jwt jwt = jwtDecoder.decode(token);
-        // Get the claims from the Jwt.
-        Map<String, Object> claimString = jwt.getClaims();
-        // Get the subject from the claims and convert it to a string.
-        String username = claimString.get("sub").toString();
+        VerifiedJwt verifiedJwt = verifyJwt(token);
         // Return the username.
-        return username;
+        return verifiedJwt != null ? verifiedJwt.getSubject() : null;
     }
 
     // This method gets the roles from a JWT.
     public List<SimpleGrantedAuthority> getRoles(String token) {
-        // Decode the token into a Jwt.
-        Jwt jwt = jwtDecoder.decode(token);
-        // Get the claims from the Jwt.
-        Map<String, Object> claimString = jwt.getClaims();
-        // Get the roles from the claims, convert it to a string, create a new
-        // SimpleGrantedAuthority with it, and put it in a list.
-        List<SimpleGrantedAuthority> roles = Arrays
-                .asList(new SimpleGrantedAuthority(claimString.get("roles").toString()));
+        VerifiedJwt verifiedJwt = verifyJwt(token);
         // Return the roles.
-        return roles;
+        return verifiedJwt != null ? verifiedJwt.getRoles() : List.of();
     }
 }
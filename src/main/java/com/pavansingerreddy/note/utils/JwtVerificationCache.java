@@ -0,0 +1,145 @@
+package com.pavansingerreddy.note.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Component annotation tells Spring that this class is a component so that spring
+// creates a single bean of it which is shared by all the requests
+@Component
+// JwtVerificationCache remembers the jwt's whose signature was already verified
+// so that the following requests of the same session skip the RSA signature
+// verification. The tokens are stored by their SHA-256 hash so that the raw
+// tokens are not kept in memory and every entry is dropped once the jwt expires
+public class JwtVerificationCache {
+
+    // the verified tokens by the hash of the token. It is a Caffeine cache which
+    // keeps at most max-entries tokens by evicting the least recently used ones and
+    // which drops every token when its jwt expires, so a full cache never has to be
+    // scanned for expired tokens
+    private final Cache<String, VerifiedJwt> verifiedTokens;
+
+    // the maximum number of verified tokens. If it is 0 no token is cached so every
+    // request verifies the signature
+    private final int maxEntries;
+
+    // number of lookups which found a verified token and which did not
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // the MeterRegistry is injected through the constructor so that the hit and
+    // miss counters and the hit ratio are registered once when the bean is created
+    // and can be read from the /actuator/metrics endpoint. The value of the property
+    // "jwt.cache.max-entries" is the maximum number of verified tokens which are
+    // kept in memory
+    public JwtVerificationCache(MeterRegistry meterRegistry,
+            @Value("${jwt.cache.max-entries:10000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new JwtExpiry())
+                .build();
+        FunctionCounter.builder("jwt.verification.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .description("Number of jwt verifications answered from the cache")
+                .register(meterRegistry);
+        FunctionCounter.builder("jwt.verification.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .description("Number of jwt verifications which needed a signature verification")
+                .register(meterRegistry);
+        Gauge.builder("jwt.verification.cache.hit.ratio", this, JwtVerificationCache::hitRatio)
+                .description("Ratio of jwt verifications answered from the cache")
+                .register(meterRegistry);
+        Gauge.builder("jwt.verification.cache.size", verifiedTokens, Cache::estimatedSize)
+                .description("Number of verified jwt's kept in memory")
+                .register(meterRegistry);
+    }
+
+    // This method returns the verified jwt for the given token hash or null if the
+    // token was not verified before or if it has expired since then
+    public VerifiedJwt get(String tokenHash, Instant now) {
+        VerifiedJwt verifiedJwt = verifiedTokens.getIfPresent(tokenHash);
+        if (verifiedJwt != null && verifiedJwt.isExpiredAt(now)) {
+            // the jwt expired before the cache dropped it so we remove it and treat the
+            // lookup as a miss
+            verifiedTokens.asMap().remove(tokenHash, verifiedJwt);
+            verifiedJwt = null;
+        }
+        if (verifiedJwt != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return verifiedJwt;
+    }
+
+    // This method remembers the verified jwt for the given token hash unless it has
+    // already expired
+    public void put(String tokenHash, VerifiedJwt verifiedJwt, Instant now) {
+        if (maxEntries > 0 && !verifiedJwt.isExpiredAt(now)) {
+            verifiedTokens.put(tokenHash, verifiedJwt);
+        }
+    }
+
+    // This method returns the ratio of the lookups which were answered from the
+    // cache
+    private double hitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    // JwtExpiry tells the cache to drop every verified jwt at the end of the second
+    // in which the jwt expires. Reading or replacing a token does not change its
+    // expiry
+    private static final class JwtExpiry implements Expiry<String, VerifiedJwt> {
+
+        @Override
+        public long expireAfterCreate(String tokenHash, VerifiedJwt verifiedJwt, long currentTime) {
+            Duration remaining = Duration.between(Instant.now(), verifiedJwt.getExpiresAt().plusSeconds(1));
+            return Math.max(0, remaining.toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String tokenHash, VerifiedJwt verifiedJwt, long currentTime,
+                long currentDuration) {
+            return expireAfterCreate(tokenHash, verifiedJwt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String tokenHash, VerifiedJwt verifiedJwt, long currentTime,
+                long currentDuration) {
+            return currentDuration;
+        }
+
+    }
+
+    // This method returns the url safe base64 SHA-256 hash of the token which is
+    // used as the key of the cache
+    public static String hash(String token) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            byte[] digest = messageDigest.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // every java platform has to support SHA-256 so this never happens
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.pavansingerreddy.note.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.pavansingerreddy.note.exception.InvalidCursorException;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Getter annotation from Lombok generates getters for all fields.
+@Getter
+// AllArgsConstructor annotation from Lombok generates a constructor with one
+// parameter for each field in your class.
+@AllArgsConstructor
+// NoteChangeCursor is the position of a change in the changes of the notes of a
+// user which are sorted by changeSequence and noteId. It is sent to the client as
+// an opaque string so that the client can ask for the changes after this position
+// on its next sync
+public class NoteChangeCursor {
+
+    // the cursor before the first change. The notes which were created before the
+    // change sequences existed have the change sequence 0 so they come after it
+    public static final NoteChangeCursor START = new NoteChangeCursor(-1, 0);
+
+    // change sequence of the last change which the client has read
+    private final long changeSequence;
+    // note id of the last change which the client has read which is used to order
+    // the changes which have the same change sequence
+    private final long noteId;
+
+    // This method converts the cursor to the opaque url safe string which is sent
+    // to the client
+    public String encode() {
+        String value = changeSequence + ":" + noteId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // This method converts the string sent by the client back to the cursor. It
+    // throws an InvalidCursorException if the string is not a cursor created by
+    // the encode method
+    public static NoteChangeCursor decode(String cursor) throws InvalidCursorException {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            // the cursor contains the change sequence and the note id separated by a
+            // colon
+            int separator = value.indexOf(':');
+            long changeSequence = Long.parseLong(value.substring(0, separator));
+            long noteId = Long.parseLong(value.substring(separator + 1));
+            return new NoteChangeCursor(changeSequence, noteId);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            // NumberFormatException is also an IllegalArgumentException
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+
+}
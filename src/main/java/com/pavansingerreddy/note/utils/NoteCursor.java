@@ -0,0 +1,66 @@
+package com.pavansingerreddy.note.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import com.pavansingerreddy.note.entity.Note;
+import com.pavansingerreddy.note.repository.NoteSummary;
+import com.pavansingerreddy.note.exception.InvalidCursorException;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Getter annotation from Lombok generates getters for all fields.
+@Getter
+// AllArgsConstructor annotation from Lombok generates a constructor with one
+// parameter for each field in your class.
+@AllArgsConstructor
+// NoteCursor is the position of a note in the list of notes of a user which is
+// sorted by updatedAt and noteId in descending order. It is sent to the client
+// as an opaque string so that the client can ask for the notes after this
+// position
+public class NoteCursor {
+
+    // updated at time of the last note of the previous page
+    private final Date updatedAt;
+    // note id of the last note of the previous page which is used to order the
+    // notes which have the same updated at time
+    private final long noteId;
+
+    // This method creates the cursor which points to the given note
+    public static NoteCursor of(Note note) {
+        return new NoteCursor(note.getUpdatedAt(), note.getNoteId());
+    }
+
+    // This method creates the cursor which points to the note of the given summary
+    public static NoteCursor of(NoteSummary noteSummary) {
+        return new NoteCursor(noteSummary.getUpdatedAt(), noteSummary.getNoteId());
+    }
+
+    // This method converts the cursor to the opaque url safe string which is sent
+    // to the client
+    public String encode() {
+        String value = updatedAt.getTime() + ":" + noteId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // This method converts the string sent by the client back to the cursor. It
+    // throws an InvalidCursorException if the string is not a cursor created by
+    // the encode method
+    public static NoteCursor decode(String cursor) throws InvalidCursorException {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            // the cursor contains the updated at time in milliseconds and the note id
+            // separated by a colon
+            int separator = value.indexOf(':');
+            long updatedAtMillis = Long.parseLong(value.substring(0, separator));
+            long noteId = Long.parseLong(value.substring(separator + 1));
+            return new NoteCursor(new Date(updatedAtMillis), noteId);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            // NumberFormatException is also an IllegalArgumentException
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.pavansingerreddy.note.utils;
+
+import java.time.Duration;
+
+// TokenBucket limits how often something can be done. The bucket holds up to
+// capacity tokens and one token is added every refillPeriod. Every action takes
+// a token so short bursts of up to capacity actions are allowed while the long
+// term rate never exceeds one action per refillPeriod. The whole state of the
+// bucket is the time at which it is full again, so it can be stored in the
+// database and shared by all the instances of the application. A token can also
+// be reserved ahead of the action, it is then taken from the bucket right away
+// and used by the next action. The methods are synchronized so one bucket can be
+// shared by many threads
+public class TokenBucket {
+
+    // maximum number of tokens in the bucket
+    private final int capacity;
+    // number of milliseconds after which one token is added
+    private final long millisPerToken;
+    // System.currentTimeMillis() at which the bucket holds capacity tokens again. A
+    // time in the past means that the bucket is full
+    private long refilledAt;
+    // tokens which were taken from the bucket by a reservation and not used yet
+    private int reserved;
+
+    // This constructor creates a full bucket so that the first emails after the
+    // application starts can be sent immediately
+    public TokenBucket(int capacity, Duration refillPeriod) {
+        if (capacity < 1 || refillPeriod.toMillis() < 1) {
+            throw new IllegalArgumentException("The capacity and the refill period of a token bucket must be positive");
+        }
+        this.capacity = capacity;
+        this.millisPerToken = refillPeriod.toMillis();
+    }
+
+    // This method returns the time at which the bucket is full again
+    public synchronized long getRefilledAt() {
+        return refilledAt;
+    }
+
+    // This method replaces the time at which the bucket is full again, for example
+    // with the time which was read from the database after another instance took
+    // tokens of the same bucket
+    public synchronized void setRefilledAt(long refilledAt) {
+        this.refilledAt = refilledAt;
+    }
+
+    // This method takes up to the given number of tokens and returns how many were
+    // taken, which is 0 if the bucket is empty
+    public synchronized int tryTake(int wanted) {
+        long now = System.currentTimeMillis();
+        int taken = Math.min(wanted, availableTokens(now));
+        if (taken > 0) {
+            refilledAt = Math.max(refilledAt, now) + taken * millisPerToken;
+        }
+        return taken;
+    }
+
+    // This method keeps a token which was taken for an action which happens later,
+    // so that the action does not take a second token
+    public synchronized void addReserved() {
+        reserved++;
+    }
+
+    // This method uses up to the given number of reserved tokens and returns how
+    // many were used
+    public synchronized int takeReserved(int wanted) {
+        int taken = Math.min(wanted, reserved);
+        reserved -= taken;
+        return taken;
+    }
+
+    // This method returns the part of the bucket which is filled, from 0 for an
+    // empty bucket to 1 for a full one. It is used to find the least loaded sender
+    public synchronized double fillRatio() {
+        long missing = Math.max(0, refilledAt - System.currentTimeMillis());
+        return Math.max(0, capacity - (double) missing / millisPerToken) / capacity;
+    }
+
+    // This method returns the time after which at least one token is available
+    public synchronized Duration timeUntilNextToken() {
+        long wait = refilledAt - (capacity - 1) * millisPerToken - System.currentTimeMillis();
+        return wait > 0 ? Duration.ofMillis(wait) : Duration.ZERO;
+    }
+
+    // This method returns the number of whole tokens in the bucket at the given time
+    private int availableTokens(long now) {
+        long missing = Math.max(0, refilledAt - now);
+        return (int) Math.max(0, capacity - (missing + millisPerToken - 1) / millisPerToken);
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.pavansingerreddy.note.utils;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Getter annotation from Lombok generates getters for all fields.
+@Getter
+// AllArgsConstructor annotation from Lombok generates a constructor with one
+// parameter for each field in your class.
+@AllArgsConstructor
+// VerifiedJwt holds everything the application needs from a jwt whose signature
+// and expiry have already been checked, so that the token does not have to be
+// decoded again to read the username or the roles
+public class VerifiedJwt {
+
+    // subject of the jwt which contains the user's email
+    private final String subject;
+    // id of the user or null if the jwt was issued before the user id was added to
+    // the jwt
+    private final Long userId;
+    // roles of the user which are present in the "roles" claim of the jwt
+    private final List<SimpleGrantedAuthority> roles;
+    // expiry time of the jwt after which it must not be accepted
+    private final Instant expiresAt;
+
+    // This method checks if the jwt is expired at the given time
+    public boolean isExpiredAt(Instant now) {
+        return expiresAt.getEpochSecond() < now.getEpochSecond();
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.pavansingerreddy.note.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.pavansingerreddy.note.dto.HighlightDto;
+
+// Checks that the highlights of a snippet point at the matching characters of
+// the snippet text after it was cut and an ellipsis was added, and that a
+// snippet never cuts a character made of two UTF-16 code units in half
+class NoteSnippetsTest {
+
+	@Test
+	void mergesOverlappingHighlightsIgnoringTheCase() {
+		List<HighlightDto> highlights = NoteSnippets.highlights("Spring springs", List.of("spring", "ring"));
+
+		assertEquals(List.of(new HighlightDto(0, 6), new HighlightDto(7, 6)), highlights);
+	}
+
+	@Test
+	void startsAtTheBeginningWhenNothingMatches() {
+		NoteSnippets.Snippet snippet = NoteSnippets.snippet("alpha beta gamma delta epsilon", List.of("zeta"), 12);
+
+		assertEquals("alpha beta…", snippet.getText());
+		assertTrue(snippet.getHighlights().isEmpty());
+	}
+
+	@Test
+	void movesTheHighlightsBehindTheEllipsis() {
+		String text = "word ".repeat(40) + "Target " + "word ".repeat(40);
+
+		NoteSnippets.Snippet snippet = NoteSnippets.snippet(text, List.of("target"), 40);
+
+		assertTrue(snippet.getText().startsWith("…"));
+		assertTrue(snippet.getText().endsWith("…"));
+		assertEquals(1, snippet.getHighlights().size());
+		HighlightDto highlight = snippet.getHighlights().get(0);
+		assertEquals("Target", snippet.getText().substring(highlight.getStart(), highlight.getStart() + highlight.getLength()));
+	}
+
+	@Test
+	void keepsSurrogatePairsTogetherAtBothEnds() {
+		// every emoji is two UTF-16 code units so the window of 13 code units around
+		// the match starts and ends on the second half of an emoji
+		String text = "😀".repeat(30) + "x" + "😀".repeat(30);
+
+		NoteSnippets.Snippet snippet = NoteSnippets.snippet(text, List.of("x"), 13);
+
+		assertEquals("…😀x😀😀😀😀…", snippet.getText());
+		HighlightDto highlight = snippet.getHighlights().get(0);
+		assertEquals("x", snippet.getText().substring(highlight.getStart(), highlight.getStart() + highlight.getLength()));
+	}
+
+	@Test
+	void keepsTheLastSurrogatePairWholeWhenNothingMatches() {
+		NoteSnippets.Snippet snippet = NoteSnippets.snippet("😀".repeat(30), List.of("x"), 11);
+
+		assertEquals("😀".repeat(5) + "…", snippet.getText());
+	}
+
+}
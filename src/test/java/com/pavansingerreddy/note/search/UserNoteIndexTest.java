@@ -0,0 +1,55 @@
+package com.pavansingerreddy.note.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+// Checks that the changes of a note which reach the index out of the order of
+// their change sequences leave the index with the newest change, and that the
+// matching notes are returned in the order of the LIKE query
+class UserNoteIndexTest {
+
+	private static final Date UPDATED_AT = new Date(1_000);
+
+	private final UserNoteIndex index = new UserNoteIndex();
+
+	@Test
+	void returnsTheMostRecentlyUpdatedNoteFirst() {
+		index.put(1L, 1, new Date(2_000), "title", "");
+		index.put(2L, 2, new Date(1_000), "title", "");
+		index.put(3L, 3, new Date(2_000), "title", "");
+		index.put(4L, 4, new Date(3_000), "other", "");
+
+		assertEquals(List.of(3L, 1L, 2L), index.search(List.of("title")));
+	}
+
+	@Test
+	void ignoresASaveOlderThanTheAppliedOne() {
+		index.put(1L, 3, UPDATED_AT, "new title", "");
+		index.put(1L, 2, UPDATED_AT, "old title", "");
+
+		assertEquals(List.of(1L), index.search(List.of("new")));
+		assertEquals(List.of(), index.search(List.of("old")));
+	}
+
+	@Test
+	void doesNotBringBackADeletedNote() {
+		index.put(1L, 1, UPDATED_AT, "title", "");
+		index.remove(1L, 3);
+		index.put(1L, 2, UPDATED_AT, "title", "");
+
+		assertEquals(List.of(), index.search(List.of("title")));
+	}
+
+	@Test
+	void ignoresADeleteOlderThanTheAppliedSave() {
+		index.put(1L, 3, UPDATED_AT, "title", "");
+		index.remove(1L, 2);
+
+		assertEquals(List.of(1L), index.search(List.of("title")));
+	}
+
+}
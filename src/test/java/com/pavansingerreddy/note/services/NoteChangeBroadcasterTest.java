@@ -0,0 +1,195 @@
+package com.pavansingerreddy.note.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.pavansingerreddy.note.dto.NoteChangeDto;
+import com.pavansingerreddy.note.dto.NoteChangeEventDto;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// Checks that the events of a connection are written in the order they were
+// published, that a slow connection whose buffer overflows gets exactly one
+// resync event instead of the dropped events, and that no event is left in the
+// buffer when the writing task hands the connection over
+class NoteChangeBroadcasterTest {
+
+	private static final long USER_ID = 1;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+
+	private ManualExecutor executor;
+
+	private NoteChangeBroadcaster broadcaster;
+
+	@BeforeEach
+	void setUp() {
+		executor = new ManualExecutor();
+		broadcaster = broadcaster(executor, 4);
+	}
+
+	@Test
+	void writesTheChangesInTheOrderTheyWerePublished() {
+		broadcaster.connect(USER_ID);
+		for (long noteId = 1; noteId <= 3; noteId++) {
+			broadcaster.publish(USER_ID, change(noteId));
+		}
+
+		// one task writes all the buffered events of the connection
+		assertEquals(1, executor.tasks.size());
+		executor.runAll();
+
+		assertEquals(List.of(":connected", "change 1", "change 2", "change 3"), sent);
+	}
+
+	@Test
+	void replacesTheDroppedChangesWithASingleResync() {
+		broadcaster.connect(USER_ID);
+		// the buffer of 4 events holds the connected comment and 3 changes, so the
+		// buffer overflows on the 4th change and again on the 9th change, and each
+		// overflow drops the buffered events together with the overflowing change
+		for (long noteId = 1; noteId <= 10; noteId++) {
+			broadcaster.publish(USER_ID, change(noteId));
+		}
+		executor.runAll();
+		broadcaster.publish(USER_ID, change(11));
+		broadcaster.publish(USER_ID, change(12));
+		executor.runAll();
+
+		assertEquals(List.of("resync", "change 10", "change 11", "change 12"), sent);
+		assertEquals(1.0, meterRegistry.counter("notes.events.resyncs").count());
+	}
+
+	@Test
+	void writesTheChangesAfterARejectedTask() {
+		executor.reject = true;
+		broadcaster.connect(USER_ID);
+		broadcaster.publish(USER_ID, change(1));
+		executor.reject = false;
+		broadcaster.publish(USER_ID, change(2));
+		executor.runAll();
+
+		assertEquals(List.of(":connected", "change 1", "change 2"), sent);
+	}
+
+	@Test
+	void doesNotWriteToAClosedConnection() {
+		SseEmitter emitter = broadcaster.connect(USER_ID);
+		executor.runAll();
+		emitter.complete();
+		ReflectionTestUtils.invokeMethod(broadcaster, "closeAll");
+		broadcaster.publish(USER_ID, change(1));
+		executor.runAll();
+
+		assertEquals(List.of(":connected"), sent);
+	}
+
+	@Test
+	void writesEveryChangeInOrderWithConcurrentWriters() throws InterruptedException {
+		ThreadPoolTaskExecutor threadPool = new ThreadPoolTaskExecutor();
+		threadPool.setCorePoolSize(4);
+		threadPool.initialize();
+		NoteChangeBroadcaster concurrentBroadcaster = broadcaster(threadPool, 100_000);
+		concurrentBroadcaster.connect(USER_ID);
+		int changes = 20_000;
+		for (long noteId = 1; noteId <= changes; noteId++) {
+			concurrentBroadcaster.publish(USER_ID, change(noteId));
+		}
+		// the last changes are only written if a task is scheduled for every change
+		// which was buffered while the previous task was finishing
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (sent.size() < changes + 1 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		threadPool.shutdown();
+
+		List<String> expected = LongStream.rangeClosed(1, changes).mapToObj(noteId -> "change " + noteId)
+				.collect(Collectors.toCollection(ArrayList::new));
+		expected.add(0, ":connected");
+		assertEquals(expected, new ArrayList<>(sent));
+		assertEquals(0.0, meterRegistry.counter("notes.events.resyncs").count());
+	}
+
+	private NoteChangeBroadcaster broadcaster(ThreadPoolTaskExecutor noteEventsExecutor, int bufferSize) {
+		NoteChangeBroadcaster changeBroadcaster = new NoteChangeBroadcaster() {
+			@Override
+			SseEmitter createEmitter() {
+				return new RecordingEmitter();
+			}
+		};
+		ReflectionTestUtils.setField(changeBroadcaster, "noteEventsExecutor", noteEventsExecutor);
+		ReflectionTestUtils.setField(changeBroadcaster, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(changeBroadcaster, "timeoutMs", 60_000L);
+		ReflectionTestUtils.setField(changeBroadcaster, "bufferSize", bufferSize);
+		ReflectionTestUtils.setField(changeBroadcaster, "maxConnectionsPerUser", 10);
+		ReflectionTestUtils.invokeMethod(changeBroadcaster, "registerMetrics");
+		return changeBroadcaster;
+	}
+
+	private static NoteChangeEventDto change(long noteId) {
+		return new NoteChangeEventDto(noteId, NoteChangeDto.Type.SAVED, new Date(), noteId);
+	}
+
+	// RecordingEmitter remembers every event instead of writing it to a response.
+	// A change is recorded with its note id, a resync as "resync" and a comment
+	// with its text
+	private class RecordingEmitter extends SseEmitter {
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			List<Object> parts = builder.build().stream().map(DataWithMediaType::getData).toList();
+			String text = parts.stream().map(String::valueOf).collect(Collectors.joining());
+			if (text.startsWith("event:change")) {
+				sent.add("change " + ((NoteChangeEventDto) parts.get(1)).getNoteId());
+			} else if (text.startsWith("event:resync")) {
+				sent.add("resync");
+			} else {
+				sent.add(text.strip());
+			}
+		}
+
+	}
+
+	// ManualExecutor keeps the submitted tasks until the test runs them, or
+	// rejects them like a full queue
+	private static class ManualExecutor extends ThreadPoolTaskExecutor {
+
+		private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+		private boolean reject;
+
+		@Override
+		public void execute(Runnable task) {
+			if (reject) {
+				throw new TaskRejectedException("The queue is full");
+			}
+			tasks.add(task);
+		}
+
+		void runAll() {
+			while (!tasks.isEmpty()) {
+				tasks.poll().run();
+			}
+		}
+
+	}
+
+}
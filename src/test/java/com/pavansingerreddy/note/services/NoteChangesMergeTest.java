@@ -0,0 +1,169 @@
+package com.pavansingerreddy.note.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.pavansingerreddy.note.dto.NoteChangesDto;
+import com.pavansingerreddy.note.entity.Note;
+import com.pavansingerreddy.note.entity.NoteSyncState;
+import com.pavansingerreddy.note.entity.NoteTombstone;
+import com.pavansingerreddy.note.model.UserPrincipal;
+import com.pavansingerreddy.note.repository.NoteRepository;
+import com.pavansingerreddy.note.repository.NoteTombstoneRepository;
+import com.pavansingerreddy.note.utils.NoteChangeCursor;
+
+import jakarta.persistence.EntityManager;
+
+// Checks how getNoteChanges merges the changed notes and the tombstones, which
+// the repositories return each sorted by (changeSequence, noteId), into one page
+// with its cursor and hasMore flag
+@ExtendWith(MockitoExtension.class)
+class NoteChangesMergeTest {
+
+	private static final long USER_ID = 7;
+
+	private static final UserPrincipal USER = new UserPrincipal(USER_ID, "user@example.com");
+
+	@Mock
+	private NoteRepository noteRepository;
+
+	@Mock
+	private NoteTombstoneRepository noteTombstoneRepository;
+
+	@Mock
+	private EntityManager entityManager;
+
+	@InjectMocks
+	private NoteServiceImplementation noteService;
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(noteService, "syncMaxPageSize", 500);
+	}
+
+	@Test
+	void ordersChangesWithTheSameSequenceByNoteId() throws Exception {
+		changes(List.of(note(5, 2), note(7, 1)), List.of(tombstone(5, 1), tombstone(5, 3)));
+
+		NoteChangesDto page = noteService.getNoteChanges(USER, null, 10);
+
+		assertEquals(List.of("DELETED 5:1", "SAVED 5:2", "DELETED 5:3", "SAVED 7:1"), describe(page));
+		assertFalse(page.isHasMore());
+		assertEquals(new NoteChangeCursor(7, 1).encode(), page.getCursor());
+	}
+
+	@Test
+	void endsThePageAtTheLastChangeWhichFits() throws Exception {
+		changes(List.of(note(5, 2), note(7, 1)), List.of(tombstone(5, 1), tombstone(5, 3)));
+
+		NoteChangesDto page = noteService.getNoteChanges(USER, null, 2);
+
+		assertEquals(List.of("DELETED 5:1", "SAVED 5:2"), describe(page));
+		assertTrue(page.isHasMore());
+		assertEquals(new NoteChangeCursor(5, 2).encode(), page.getCursor());
+	}
+
+	@Test
+	void hasNoMoreWhenThePageTakesEveryChange() throws Exception {
+		changes(List.of(note(5, 2), note(7, 1)), List.of(tombstone(5, 1), tombstone(5, 3)));
+
+		NoteChangesDto page = noteService.getNoteChanges(USER, null, 4);
+
+		assertEquals(4, page.getChanges().size());
+		assertFalse(page.isHasMore());
+	}
+
+	@Test
+	void continuesAfterTheCursor() throws Exception {
+		String cursor = new NoteChangeCursor(5, 2).encode();
+		when(noteRepository.findChangedAfter(eq(USER_ID), eq(5L), eq(2L), any(Pageable.class)))
+				.thenReturn(List.of(note(7, 1)));
+		when(noteTombstoneRepository.findChangedAfter(eq(USER_ID), eq(5L), eq(2L), any(Pageable.class)))
+				.thenReturn(List.of(tombstone(5, 3)));
+
+		NoteChangesDto page = noteService.getNoteChanges(USER, cursor, 10);
+
+		assertEquals(List.of("DELETED 5:3", "SAVED 7:1"), describe(page));
+	}
+
+	@Test
+	void keepsTheCursorWhenNothingChanged() throws Exception {
+		String cursor = new NoteChangeCursor(9, 4).encode();
+		changes(List.of(), List.of());
+
+		NoteChangesDto page = noteService.getNoteChanges(USER, cursor, 10);
+
+		assertTrue(page.getChanges().isEmpty());
+		assertEquals(cursor, page.getCursor());
+		assertFalse(page.isResyncRequired());
+	}
+
+	@Test
+	void startsWithoutACursorForANewClient() throws Exception {
+		changes(List.of(), List.of());
+
+		NoteChangesDto page = noteService.getNoteChanges(USER, null, 10);
+
+		assertNull(page.getCursor());
+		verify(noteRepository).findChangedAfter(eq(USER_ID), eq(-1L), eq(0L), any(Pageable.class));
+	}
+
+	@Test
+	void requiresAResyncWhenTombstonesAfterTheCursorWereDeleted() throws Exception {
+		NoteSyncState syncState = new NoteSyncState();
+		syncState.setPurgedChangeSequence(6);
+		when(entityManager.find(NoteSyncState.class, USER_ID)).thenReturn(syncState);
+
+		NoteChangesDto page = noteService.getNoteChanges(USER, new NoteChangeCursor(5, 2).encode(), 10);
+
+		assertTrue(page.isResyncRequired());
+		assertTrue(page.getChanges().isEmpty());
+		verify(noteRepository, never()).findChangedAfter(anyLong(), anyLong(), anyLong(), any(Pageable.class));
+	}
+
+	private void changes(List<Note> notes, List<NoteTombstone> tombstones) {
+		when(noteRepository.findChangedAfter(eq(USER_ID), anyLong(), anyLong(), any(Pageable.class))).thenReturn(notes);
+		when(noteTombstoneRepository.findChangedAfter(eq(USER_ID), anyLong(), anyLong(), any(Pageable.class)))
+				.thenReturn(tombstones);
+	}
+
+	private static Note note(long changeSequence, long noteId) {
+		Note note = new Note();
+		note.setNoteId(noteId);
+		note.setChangeSequence(changeSequence);
+		note.setTitle("note " + noteId);
+		note.setContent("content");
+		return note;
+	}
+
+	private static NoteTombstone tombstone(long changeSequence, long noteId) {
+		return new NoteTombstone(noteId, null, changeSequence, new Date());
+	}
+
+	private static List<String> describe(NoteChangesDto page) {
+		return page.getChanges().stream()
+				.map(change -> change.getType() + " " + change.getChangeSequence() + ":" + change.getNoteId())
+				.toList();
+	}
+
+}
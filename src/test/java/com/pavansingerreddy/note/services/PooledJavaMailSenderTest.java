@@ -0,0 +1,109 @@
+package com.pavansingerreddy.note.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+
+// Sends the same emails to a local GreenMail SMTP server with a plain
+// JavaMailSenderImpl, which connects for every email, and with the
+// PooledJavaMailSender, and prints the emails per second of both
+class PooledJavaMailSenderTest {
+
+	private static final int MESSAGES = 200;
+
+	@RegisterExtension
+	static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP)
+			.withConfiguration(GreenMailConfiguration.aConfig().withUser("sender@localhost", "secret"))
+			.withPerMethodLifecycle(true);
+
+	@Test
+	void reusesOneConnectionForAllEmails() {
+		PooledJavaMailSender pooledSender = configure(new PooledJavaMailSender(2, Duration.ofSeconds(30)));
+
+		double pooledRate = sendOneByOne(pooledSender);
+
+		assertEquals(MESSAGES, greenMail.getReceivedMessages().length);
+		assertEquals(1, pooledSender.getOpenedConnections());
+		pooledSender.close();
+		System.out.printf("pooled: %.0f emails/s%n", pooledRate);
+	}
+
+	@Test
+	void comparesThroughputWithAndWithoutPooling() {
+		JavaMailSenderImpl plainSender = configure(new JavaMailSenderImpl());
+		PooledJavaMailSender pooledSender = configure(new PooledJavaMailSender(2, Duration.ofSeconds(30)));
+
+		// warming up both senders so that the class loading is not measured
+		plainSender.send(message(0));
+		pooledSender.send(message(0));
+
+		double plainRate = sendOneByOne(plainSender);
+		double pooledRate = sendOneByOne(pooledSender);
+		double batchRate = sendAsBatch(pooledSender);
+
+		assertEquals(3 * MESSAGES + 2, greenMail.getReceivedMessages().length);
+		pooledSender.close();
+		System.out.printf("without pooling: %.0f emails/s, pooled: %.0f emails/s, pooled batch: %.0f emails/s%n",
+				plainRate, pooledRate, batchRate);
+	}
+
+	@Test
+	void reconnectsAfterTheIdleTimeout() throws InterruptedException {
+		PooledJavaMailSender pooledSender = configure(new PooledJavaMailSender(2, Duration.ofMillis(50)));
+
+		pooledSender.send(message(1));
+		Thread.sleep(100);
+		pooledSender.closeIdleConnections();
+		pooledSender.send(message(2));
+
+		assertEquals(2, greenMail.getReceivedMessages().length);
+		assertEquals(2, pooledSender.getOpenedConnections());
+		pooledSender.close();
+	}
+
+	private static <T extends JavaMailSenderImpl> T configure(T sender) {
+		sender.setHost("localhost");
+		sender.setPort(ServerSetupTest.SMTP.getPort());
+		sender.setUsername("sender@localhost");
+		sender.setPassword("secret");
+		sender.getJavaMailProperties().put("mail.smtp.auth", "true");
+		return sender;
+	}
+
+	private static double sendOneByOne(JavaMailSenderImpl sender) {
+		long start = System.nanoTime();
+		for (int i = 0; i < MESSAGES; i++) {
+			sender.send(message(i));
+		}
+		return MESSAGES / ((System.nanoTime() - start) / 1e9);
+	}
+
+	private static double sendAsBatch(JavaMailSenderImpl sender) {
+		SimpleMailMessage[] messages = new SimpleMailMessage[MESSAGES];
+		for (int i = 0; i < MESSAGES; i++) {
+			messages[i] = message(i);
+		}
+		long start = System.nanoTime();
+		sender.send(messages);
+		return MESSAGES / ((System.nanoTime() - start) / 1e9);
+	}
+
+	private static SimpleMailMessage message(int i) {
+		SimpleMailMessage message = new SimpleMailMessage();
+		message.setFrom("sender@localhost");
+		message.setTo("user" + i + "@localhost");
+		message.setSubject("Verify your account");
+		message.setText("Please verify your account " + i);
+		return message;
+	}
+
+}